@@ -0,0 +1,56 @@
+package com.tenniscourts;
+
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.reservations.Reservation;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.tenniscourts.TennisCourt;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the entity graphs the benchmarks work on, the way they come out of the join fetching queries:
+ * every reservation with its guest and its schedule, and every schedule with its court.
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Reservations on back to back hour long schedules of one court, spread over a handful of guests.
+     *
+     * @param count         the number of reservations
+     * @param startDateTime the start of the first schedule
+     * @return the reservations ordered by schedule start
+     */
+    public static List<Reservation> reservations(int count, LocalDateTime startDateTime) {
+        TennisCourt tennisCourt = new TennisCourt();
+        tennisCourt.setId(1L);
+        tennisCourt.setName("Roland Garros - Court Philippe-Chatrier");
+
+        List<Guest> guests = new ArrayList<>();
+        for (long i = 1; i <= 10; i++) {
+            Guest guest = new Guest();
+            guest.setId(i);
+            guest.setName("Guest " + i);
+            guests.add(guest);
+        }
+
+        List<Reservation> reservations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Schedule schedule = Schedule.builder().tennisCourt(tennisCourt)
+                    .startDateTime(startDateTime.plusHours(i)).endDateTime(startDateTime.plusHours(i + 1)).build();
+            schedule.setId((long) i + 1);
+
+            Reservation reservation = Reservation.builder().guest(guests.get(i % guests.size())).schedule(schedule)
+                    .reservationStatus(ReservationStatus.READY_TO_PLAY).value(BigDecimal.TEN).refundValue(BigDecimal.ZERO).build();
+            reservation.setId((long) i + 1);
+            reservations.add(reservation);
+        }
+        return reservations;
+    }
+}
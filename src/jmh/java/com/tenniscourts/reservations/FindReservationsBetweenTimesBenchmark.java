@@ -0,0 +1,75 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.BenchmarkFixtures;
+import com.tenniscourts.config.pagination.KeysetCursor;
+import com.tenniscourts.config.pagination.KeysetPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Java side of the reservation listing: decoding the cursor, mapping the page and encoding the next
+ * cursor. The filtering itself is the seek query's job, so the repository hands back a ready page here;
+ * the load test covers the whole thing against the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FindReservationsBetweenTimesBenchmark {
+
+    @Param({"10", "100", "500"})
+    public int limit;
+
+    private ReservationService reservationService;
+
+    private LocalDateTime startDateTime;
+
+    private LocalDateTime endDateTime;
+
+    private String after;
+
+    @Setup
+    public void setUp() {
+        startDateTime = LocalDateTime.now().plusDays(1);
+        endDateTime = startDateTime.plusDays(60);
+        List<Reservation> page = BenchmarkFixtures.reservations(limit, startDateTime.plusHours(1));
+
+        /* A bare proxy rather than a Mockito stub, whose bookkeeping on every call costs more than the page
+           being measured. The listing only ever calls findAllBetweenTimesAfter.
+         */
+        Slice<Reservation> slice = new SliceImpl<>(page, KeysetPage.limit(limit), true);
+        ReservationRepository reservationRepository = (ReservationRepository) Proxy.newProxyInstance(
+                ReservationRepository.class.getClassLoader(), new Class<?>[]{ReservationRepository.class}, (proxy, method, args) -> slice);
+
+        reservationService = ReservationServices.withMockedDependencies(reservationRepository, new ReservationMapperImpl());
+        after = KeysetCursor.of(startDateTime, 1L).encode();
+    }
+
+    @Benchmark
+    public KeysetPage<ReservationDTO> firstPage() {
+        return reservationService.findAllReservationsBetweenTimes(startDateTime, endDateTime, null, limit);
+    }
+
+    @Benchmark
+    public KeysetPage<ReservationDTO> nextPage() {
+        return reservationService.findAllReservationsBetweenTimes(startDateTime, endDateTime, after, limit);
+    }
+}
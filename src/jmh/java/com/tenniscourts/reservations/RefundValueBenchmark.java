@@ -0,0 +1,54 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * The refund worked out for every cancellation and reschedule, once per tier: the reservation starts
+ * far enough ahead for a full refund, 75%, 50%, 25% or nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RefundValueBenchmark {
+
+    @Param({"2880", "1080", "360", "60", "0"})
+    public int minutesAhead;
+
+    private ReservationService reservationService;
+
+    private Reservation reservation;
+
+    private LocalDateTime now;
+
+    @Setup
+    public void setUp() {
+        reservationService = ReservationServices.withMockedDependencies(mock(ReservationRepository.class), mock(ReservationMapper.class));
+        now = LocalDateTime.now();
+        reservation = BenchmarkFixtures.reservations(1, now.plusMinutes(minutesAhead)).get(0);
+    }
+
+    @Benchmark
+    public BigDecimal getRefundValue() {
+        return reservationService.getRefundValue(reservation, now);
+    }
+}
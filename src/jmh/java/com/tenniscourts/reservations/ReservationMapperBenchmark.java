@@ -0,0 +1,48 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The generated MapStruct mapper turning reservation lists into DTOs, each one copying its schedule and
+ * the schedule's court into nested DTOs, at the sizes of a small page, a full page and an export chunk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationMapperBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int reservations;
+
+    private final ReservationMapper reservationMapper = new ReservationMapperImpl();
+
+    private List<Reservation> source;
+
+    @Setup
+    public void setUp() {
+        source = BenchmarkFixtures.reservations(reservations, LocalDateTime.now().plusDays(1));
+    }
+
+    @Benchmark
+    public List<ReservationDTO> mapList() {
+        return reservationMapper.map(source);
+    }
+}
@@ -0,0 +1,31 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.analytics.CourtUsageService;
+import com.tenniscourts.config.metrics.BookingMetrics;
+import com.tenniscourts.config.persistence.OptimisticRetryExecutor;
+import com.tenniscourts.guests.GuestRepository;
+import com.tenniscourts.schedules.ScheduleIndex;
+import com.tenniscourts.schedules.ScheduleRepository;
+import com.tenniscourts.waitlist.WaitlistService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.transaction.support.TransactionOperations;
+
+import javax.persistence.EntityManager;
+
+import static org.mockito.Mockito.mock;
+
+final class ReservationServices {
+
+    private ReservationServices() {
+    }
+
+    /* A ReservationService around the given repository and mapper; everything else is a mock, which the
+       read paths being benchmarked never touch.
+     */
+    static ReservationService withMockedDependencies(ReservationRepository reservationRepository, ReservationMapper reservationMapper) {
+        return new ReservationService(reservationRepository, mock(GuestRepository.class), mock(ScheduleRepository.class),
+                reservationMapper, mock(ScheduleIndex.class), new OptimisticRetryExecutor(TransactionOperations.withoutTransaction()),
+                new BookingLanes(false, 0), mock(CourtUsageService.class), mock(WaitlistService.class),
+                new BookingMetrics(new SimpleMeterRegistry()), mock(EntityManager.class));
+    }
+}
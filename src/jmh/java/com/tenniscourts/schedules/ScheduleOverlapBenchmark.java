@@ -0,0 +1,106 @@
+package com.tenniscourts.schedules;
+
+import com.tenniscourts.analytics.CourtUsageService;
+import com.tenniscourts.config.metrics.BookingMetrics;
+import com.tenniscourts.config.persistence.OptimisticRetryExecutor;
+import com.tenniscourts.reservations.ReservationRepository;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.tenniscourts.TennisCourtRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The overlap check every new schedule goes through, against courts holding 1k to 100k schedules.
+ * The schedules are an hour long with an hour gap between them; the free probes land in the gaps and
+ * the overlapping ones on a schedule, which also pays for the rejection's exception.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScheduleOverlapBenchmark {
+
+    private static final int PROBES = 1024;
+
+    @Param({"1000", "10000", "100000"})
+    public int schedulesPerCourt;
+
+    private ScheduleService scheduleService;
+
+    private final LocalDateTime[] freeProbes = new LocalDateTime[PROBES];
+
+    private final LocalDateTime[] overlappingProbes = new LocalDateTime[PROBES];
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime firstStart = LocalDate.now().plusDays(1).atStartOfDay();
+        List<ScheduleSlot> slots = new ArrayList<>(schedulesPerCourt);
+        for (int i = 0; i < schedulesPerCourt; i++) {
+            LocalDateTime startDateTime = firstStart.plusHours(2L * i);
+            slots.add(new ScheduleSlot((long) i + 1, startDateTime, startDateTime.plusHours(1)));
+        }
+
+        ScheduleRepository scheduleRepository = mock(ScheduleRepository.class);
+        ReservationRepository reservationRepository = mock(ReservationRepository.class);
+        when(scheduleRepository.findSlotsByTennisCourtId(1L)).thenReturn(slots);
+        when(reservationRepository.findScheduleStartDateTimesByTennisCourtIdAndReservationStatus(1L, ReservationStatus.READY_TO_PLAY))
+                .thenReturn(Collections.emptyList());
+
+        ScheduleIndex scheduleIndex = new ScheduleIndex(scheduleRepository, reservationRepository, mock(ScheduleRangeCache.class));
+        scheduleService = new ScheduleService(scheduleRepository, mock(TennisCourtRepository.class), mock(ScheduleMapper.class),
+                scheduleIndex, mock(CourtUsageService.class), new OptimisticRetryExecutor(TransactionOperations.withoutTransaction()),
+                new BookingMetrics(new SimpleMeterRegistry()));
+
+        Random random = new Random(42);
+        for (int i = 0; i < PROBES; i++) {
+            int slot = random.nextInt(schedulesPerCourt);
+            overlappingProbes[i] = firstStart.plusHours(2L * slot);
+            freeProbes[i] = firstStart.plusHours(2L * slot + 1);
+        }
+        /* Loads the court into the index outside of the measurement. */
+        scheduleIndex.overlaps(1L, firstStart, firstStart.plusHours(1));
+    }
+
+    @Benchmark
+    public void validateFreeSlot() {
+        LocalDateTime startDateTime = freeProbes[next++ & (PROBES - 1)];
+        scheduleService.validateScheduleOverlap(1L, startDateTime, startDateTime.plusHours(1));
+    }
+
+    @Benchmark
+    public void validateOverlappingSlot(Blackhole blackhole) {
+        LocalDateTime startDateTime = overlappingProbes[next++ & (PROBES - 1)];
+        try {
+            scheduleService.validateScheduleOverlap(1L, startDateTime, startDateTime.plusHours(1));
+        } catch (IllegalArgumentException e) {
+            blackhole.consume(e);
+        }
+    }
+}
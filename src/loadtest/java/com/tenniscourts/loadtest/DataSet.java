@@ -0,0 +1,33 @@
+package com.tenniscourts.loadtest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * What the seeding created and the clients pick from. The active reservations are shared: booking adds
+ * to them and cancelling or rescheduling takes one out, so no two clients work on the same reservation.
+ */
+class DataSet {
+
+    final List<Long> tennisCourtIds;
+
+    final List<Long> guestIds;
+
+    final List<Long> scheduleIds;
+
+    final LocalDate firstDay;
+
+    final int days;
+
+    final Queue<Long> activeReservationIds = new ConcurrentLinkedQueue<>();
+
+    DataSet(List<Long> tennisCourtIds, List<Long> guestIds, List<Long> scheduleIds, LocalDate firstDay, int days) {
+        this.tennisCourtIds = tennisCourtIds;
+        this.guestIds = guestIds;
+        this.scheduleIds = scheduleIds;
+        this.firstDay = firstDay;
+        this.days = days;
+    }
+}
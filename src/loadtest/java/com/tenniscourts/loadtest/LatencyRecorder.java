@@ -0,0 +1,80 @@
+package com.tenniscourts.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of one endpoint as seen by one client thread. Each client keeps its own so recording never
+ * contends; they're merged once the run is over.
+ */
+class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+
+    private int count;
+
+    private long rejected;
+
+    private long failed;
+
+    /* 2xx responses. */
+    void recordSuccess(long nanos) {
+        record(nanos);
+    }
+
+    /* 4xx responses: the app turned the request down, e.g. cancelling something already cancelled.
+       Still a full round trip, so it counts for the latencies.
+     */
+    void recordRejection(long nanos) {
+        record(nanos);
+        rejected++;
+    }
+
+    /* 5xx responses and I/O errors. */
+    void recordFailure() {
+        failed++;
+    }
+
+    void merge(LatencyRecorder other) {
+        ensureCapacity(count + other.count);
+        System.arraycopy(other.latencies, 0, latencies, count, other.count);
+        count += other.count;
+        rejected += other.rejected;
+        failed += other.failed;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long rejections() {
+        return rejected;
+    }
+
+    long failures() {
+        return failed;
+    }
+
+    /* Nearest rank on a sorted copy, in nanoseconds; 0 when nothing was recorded. */
+    long[] percentiles(double... percentiles) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+
+        long[] values = new long[percentiles.length];
+        for (int i = 0; i < percentiles.length && count > 0; i++) {
+            int rank = (int) Math.ceil(percentiles[i] / 100 * count);
+            values[i] = sorted[Math.max(0, Math.min(count, rank) - 1)];
+        }
+        return values;
+    }
+
+    private void record(long nanos) {
+        ensureCapacity(count + 1);
+        latencies[count++] = nanos;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > latencies.length) {
+            latencies = Arrays.copyOf(latencies, Math.max(capacity, latencies.length * 2));
+        }
+    }
+}
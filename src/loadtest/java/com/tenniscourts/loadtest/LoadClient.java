@@ -0,0 +1,163 @@
+package com.tenniscourts.loadtest;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * One simulated client: picks an operation by the weights of the mix, sends it, waits for the answer and
+ * goes again until the run is over. Only requests started after the warmup are recorded.
+ */
+class LoadClient implements Callable<Map<Operation, LatencyRecorder>> {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+
+    private final TennisCourtsClient client;
+
+    private final DataSet dataSet;
+
+    private final Random random;
+
+    private final Operation[] operations;
+
+    private final int[] cumulativeWeights;
+
+    private final long recordFrom;
+
+    private final long stopAt;
+
+    private final Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+
+    LoadClient(TennisCourtsClient client, DataSet dataSet, Map<Operation, Integer> mix, long seed, long recordFrom, long stopAt) {
+        this.client = client;
+        this.dataSet = dataSet;
+        this.random = new Random(seed);
+        this.recordFrom = recordFrom;
+        this.stopAt = stopAt;
+
+        this.operations = mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new LatencyRecorder());
+        }
+    }
+
+    @Override
+    public Map<Operation, LatencyRecorder> call() throws InterruptedException {
+        while (System.nanoTime() < stopAt) {
+            Operation operation = next();
+            Long reservationId = null;
+            if (operation == Operation.CANCEL || operation == Operation.RESCHEDULE) {
+                reservationId = dataSet.activeReservationIds.poll();
+                if (reservationId == null) {
+                    operation = Operation.BOOK;
+                }
+            }
+
+            long start = System.nanoTime();
+            HttpResponse<String> response;
+            try {
+                response = send(operation, reservationId);
+            } catch (IOException e) {
+                if (reservationId != null) {
+                    dataSet.activeReservationIds.add(reservationId);
+                }
+                if (start >= recordFrom) {
+                    recorders.get(operation).recordFailure();
+                }
+                continue;
+            }
+
+            long nanos = System.nanoTime() - start;
+            if (start >= recordFrom) {
+                record(operation, response.statusCode(), nanos);
+            }
+        }
+        return recorders;
+    }
+
+    private Operation next() {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < operations.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException("The weights don't add up.");
+    }
+
+    private void record(Operation operation, int status, long nanos) {
+        LatencyRecorder recorder = recorders.get(operation);
+        if (status >= 500) {
+            recorder.recordFailure();
+        } else if (status >= 400) {
+            recorder.recordRejection(nanos);
+        } else {
+            recorder.recordSuccess(nanos);
+        }
+    }
+
+    /* Cancelling and rescheduling take one of the active reservations, which goes back for others to use
+       unless it was actually cancelled or moved. With none left the client books one instead.
+     */
+    private HttpResponse<String> send(Operation operation, Long reservationId) throws IOException, InterruptedException {
+        switch (operation) {
+            case CANCEL: {
+                HttpResponse<String> response = client.delete("/reservation/" + reservationId);
+                if (response.statusCode() >= 400) {
+                    dataSet.activeReservationIds.add(reservationId);
+                }
+                return response;
+            }
+            case RESCHEDULE: {
+                HttpResponse<String> response = client.put("/reservation/" + reservationId + "/" + pick(dataSet.scheduleIds));
+                dataSet.activeReservationIds.add(response.statusCode() == 200 ? client.read(response).get("id").asLong() : reservationId);
+                return response;
+            }
+            case AVAILABILITY: {
+                LocalDateTime from = day().atTime(8, 0);
+                return client.get("/court/" + pick(dataSet.tennisCourtIds) + "/availability?from=" + from.format(DATE_TIME)
+                        + "&to=" + from.plusDays(1).format(DATE_TIME));
+            }
+            case LIST: {
+                LocalDateTime from = day().atStartOfDay();
+                return client.get("/reservation/list/" + from.format(DATE_TIME) + "/" + from.plusDays(1).format(DATE_TIME) + "?limit=100");
+            }
+            case SCHEDULES: {
+                LocalDate day = day();
+                return client.get("/schedule/" + day + "/" + day.plusDays(1) + "?limit=100");
+            }
+            default: {
+                Map<String, Object> booking = new HashMap<>();
+                booking.put("guestId", pick(dataSet.guestIds));
+                booking.put("scheduleId", pick(dataSet.scheduleIds));
+                HttpResponse<String> response = client.post("/reservation", booking);
+                if (response.statusCode() == 201) {
+                    dataSet.activeReservationIds.add(TennisCourtsClient.createdId(response));
+                }
+                return response;
+            }
+        }
+    }
+
+    private LocalDate day() {
+        return dataSet.firstDay.plusDays(random.nextInt(dataSet.days));
+    }
+
+    private Long pick(List<Long> ids) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+}
@@ -0,0 +1,135 @@
+package com.tenniscourts.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tenniscourts.TennisCourtApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the application on a random port against an in-memory H2, seeds it through the API, lets the
+ * clients loose on it for the configured time and writes the throughput and latency percentiles of every
+ * endpoint as JSON. Meant to be run with {@code ./gradlew loadTest}; see {@link LoadTestSettings} for the knobs.
+ */
+public class LoadTest {
+
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = new LoadTestSettings();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TennisCourtApplication.class)
+                .run(settings.applicationArguments(args));
+
+        try {
+            TennisCourtsClient client = new TennisCourtsClient(((WebServerApplicationContext) context).getWebServer().getPort());
+            DataSet dataSet = new Seeder(client, settings).seed();
+            System.out.printf("Seeded %d courts, %d guests, %d schedules and %d reservations.%n", dataSet.tennisCourtIds.size(),
+                    dataSet.guestIds.size(), dataSet.scheduleIds.size(), dataSet.activeReservationIds.size());
+
+            Map<Operation, LatencyRecorder> results = run(client, dataSet, settings);
+            Map<String, Object> report = report(results, settings);
+
+            Files.createDirectories(settings.output.toAbsolutePath().getParent());
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(settings.output.toFile(), report);
+            print(report);
+            System.out.println("Wrote " + settings.output.toAbsolutePath());
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Map<Operation, LatencyRecorder> run(TennisCourtsClient client, DataSet dataSet, LoadTestSettings settings) throws Exception {
+        long start = System.nanoTime();
+        long recordFrom = start + TimeUnit.SECONDS.toNanos(settings.warmupSeconds);
+        long stopAt = recordFrom + TimeUnit.SECONDS.toNanos(settings.durationSeconds);
+
+        ExecutorService executor = Executors.newFixedThreadPool(settings.clients);
+        List<Future<Map<Operation, LatencyRecorder>>> clients = new ArrayList<>();
+        for (int i = 0; i < settings.clients; i++) {
+            clients.add(executor.submit(new LoadClient(client, dataSet, settings.mix, settings.seed + i, recordFrom, stopAt)));
+        }
+
+        Map<Operation, LatencyRecorder> results = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            results.put(operation, new LatencyRecorder());
+        }
+        for (Future<Map<Operation, LatencyRecorder>> clientResults : clients) {
+            clientResults.get().forEach((operation, recorder) -> results.get(operation).merge(recorder));
+        }
+        executor.shutdown();
+        return results;
+    }
+
+    private static Map<String, Object> report(Map<Operation, LatencyRecorder> results, LoadTestSettings settings) {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        LatencyRecorder total = new LatencyRecorder();
+        results.forEach((operation, recorder) -> {
+            if (recorder.count() + recorder.failures() > 0) {
+                endpoints.put(operation.endpoint(), summary(recorder, settings.durationSeconds));
+                total.merge(recorder);
+            }
+        });
+
+        Map<String, Object> mix = new LinkedHashMap<>();
+        settings.mix.forEach((operation, weight) -> mix.put(operation.endpoint(), weight));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("finishedAt", Instant.now().toString());
+        report.put("clients", settings.clients);
+        report.put("warmupSeconds", settings.warmupSeconds);
+        report.put("durationSeconds", settings.durationSeconds);
+        report.put("mix", mix);
+        report.put("total", summary(total, settings.durationSeconds));
+        report.put("endpoints", endpoints);
+        return report;
+    }
+
+    private static Map<String, Object> summary(LatencyRecorder recorder, int durationSeconds) {
+        long[] percentiles = recorder.percentiles(PERCENTILES);
+        long[] max = recorder.percentiles(100);
+
+        Map<String, Object> latencyMillis = new LinkedHashMap<>();
+        latencyMillis.put("p50", millis(percentiles[0]));
+        latencyMillis.put("p99", millis(percentiles[1]));
+        latencyMillis.put("p999", millis(percentiles[2]));
+        latencyMillis.put("max", millis(max[0]));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", recorder.count() + recorder.failures());
+        summary.put("rejected", recorder.rejections());
+        summary.put("failed", recorder.failures());
+        summary.put("throughputPerSecond", Math.round(recorder.count() * 10.0 / durationSeconds) / 10.0);
+        summary.put("latencyMillis", latencyMillis);
+        return summary;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> report) {
+        System.out.printf("%-50s %9s %9s %7s %9s %9s %9s%n", "endpoint", "requests", "req/s", "failed", "p50 ms", "p99 ms", "p999 ms");
+        Map<String, Object> rows = new LinkedHashMap<>((Map<String, Object>) report.get("endpoints"));
+        rows.put("total", report.get("total"));
+        rows.forEach((endpoint, value) -> {
+            Map<String, Object> summary = (Map<String, Object>) value;
+            Map<String, Object> latencyMillis = (Map<String, Object>) summary.get("latencyMillis");
+            System.out.printf("%-50s %9s %9s %7s %9s %9s %9s%n", endpoint, summary.get("requests"), summary.get("throughputPerSecond"),
+                    summary.get("failed"), latencyMillis.get("p50"), latencyMillis.get("p99"), latencyMillis.get("p999"));
+        });
+    }
+}
@@ -0,0 +1,84 @@
+package com.tenniscourts.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Knobs of a run, read from {@code loadtest.*} system properties, which the Gradle task fills from the
+ * project properties of the same name. Anything under {@code loadtest.app.} is handed to the application
+ * itself, e.g. {@code -Ploadtest.app.booking.lanes.enabled=true}.
+ */
+class LoadTestSettings {
+
+    private static final String PREFIX = "loadtest.";
+
+    private static final String APP_PREFIX = PREFIX + "app.";
+
+    final int clients = Integer.getInteger(PREFIX + "clients", 32);
+
+    final int warmupSeconds = Integer.getInteger(PREFIX + "warmupSeconds", 10);
+
+    final int durationSeconds = Integer.getInteger(PREFIX + "durationSeconds", 60);
+
+    final Map<Operation, Integer> mix = parseMix(System.getProperty(PREFIX + "mix",
+            "book:30,cancel:10,reschedule:10,availability:30,list:10,schedules:10"));
+
+    final int courts = Integer.getInteger(PREFIX + "courts", 10);
+
+    final int guests = Integer.getInteger(PREFIX + "guests", 200);
+
+    final int days = Integer.getInteger(PREFIX + "days", 14);
+
+    /* Share of the seeded schedules that are already booked when the clients start. */
+    final double bookedShare = Double.parseDouble(System.getProperty(PREFIX + "bookedShare", "0.3"));
+
+    final long seed = Long.getLong(PREFIX + "seed", 42L);
+
+    final Path output = Paths.get(System.getProperty(PREFIX + "output", "build/reports/loadtest/results.json"));
+
+    /* In-memory H2 on a random port under the prod profile, so only a sample of the statements is logged
+       instead of every one the default profile logs, which would otherwise be a good part of what gets
+       measured. They're given as command line arguments so they win over application.properties.
+     */
+    String[] applicationArguments(String[] args) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        properties.put("spring.profiles.active", "prod");
+        properties.put("reservation.sweeper.enabled", false);
+
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith(APP_PREFIX))
+                .forEach(name -> properties.put(name.substring(APP_PREFIX.length()), System.getProperty(name)));
+
+        List<String> arguments = new ArrayList<>();
+        properties.forEach((name, value) -> arguments.add("--" + name + "=" + value));
+        arguments.addAll(Arrays.asList(args));
+        return arguments.toArray(new String[0]);
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] operationAndWeight = part.split(":");
+            if (operationAndWeight.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight in the mix but got '" + part + "'.");
+            }
+            int weight = Integer.parseInt(operationAndWeight[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weights in the mix can't be negative.");
+            }
+            weights.put(Operation.of(operationAndWeight[0]), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("The mix needs at least one operation with a positive weight.");
+        }
+        return weights;
+    }
+}
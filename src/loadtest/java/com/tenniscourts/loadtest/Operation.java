@@ -0,0 +1,36 @@
+package com.tenniscourts.loadtest;
+
+/**
+ * What a client can do in one step, named after the endpoint it hits. The mix is given as weights per
+ * operation, e.g. {@code book:30,cancel:10,reschedule:10,availability:30,list:10,schedules:10}.
+ */
+enum Operation {
+    BOOK("book", "POST /reservation"),
+    CANCEL("cancel", "DELETE /reservation/{reservationId}"),
+    RESCHEDULE("reschedule", "PUT /reservation/{reservationId}/{scheduleId}"),
+    AVAILABILITY("availability", "GET /court/{tennisCourtId}/availability"),
+    LIST("list", "GET /reservation/list/{startDateTime}/{endDateTime}"),
+    SCHEDULES("schedules", "GET /schedule/{startDate}/{endDate}");
+
+    private final String key;
+
+    private final String endpoint;
+
+    Operation(String key, String endpoint) {
+        this.key = key;
+        this.endpoint = endpoint;
+    }
+
+    String endpoint() {
+        return endpoint;
+    }
+
+    static Operation of(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equalsIgnoreCase(key.trim())) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation '" + key + "', expected one of book, cancel, reschedule, availability, list or schedules.");
+    }
+}
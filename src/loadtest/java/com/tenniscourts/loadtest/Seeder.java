@@ -0,0 +1,89 @@
+package com.tenniscourts.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.tenniscourts.loadtest.TennisCourtsClient.createdId;
+import static com.tenniscourts.loadtest.TennisCourtsClient.expect;
+
+/**
+ * Builds the starting data through the API itself: courts open from 8 to 22 with hour long slots every
+ * day of the period, a pool of guests, and part of the slots already booked.
+ */
+class Seeder {
+
+    private static final int MAX_BATCH = 100;
+
+    private final TennisCourtsClient client;
+
+    private final LoadTestSettings settings;
+
+    Seeder(TennisCourtsClient client, LoadTestSettings settings) {
+        this.client = client;
+        this.settings = settings;
+    }
+
+    DataSet seed() throws IOException, InterruptedException {
+        LocalDate firstDay = LocalDate.now().plusDays(1);
+
+        List<Long> tennisCourtIds = new ArrayList<>();
+        for (int i = 1; i <= settings.courts; i++) {
+            tennisCourtIds.add(createdId(expect(201, client.post("/court", Collections.singletonMap("name", "Load Test Court " + i)))));
+        }
+
+        List<Long> guestIds = new ArrayList<>();
+        for (int i = 1; i <= settings.guests; i++) {
+            guestIds.add(createdId(expect(201, client.post("/guest", Collections.singletonMap("name", "Load Test Guest " + i)))));
+        }
+
+        List<Long> scheduleIds = new ArrayList<>();
+        for (Long tennisCourtId : tennisCourtIds) {
+            Map<String, Object> grid = new HashMap<>();
+            grid.put("tennisCourtId", tennisCourtId);
+            grid.put("startDate", firstDay.toString());
+            grid.put("endDate", firstDay.plusDays(settings.days - 1).toString());
+            grid.put("openingTime", LocalTime.of(8, 0).toString());
+            grid.put("closingTime", LocalTime.of(22, 0).toString());
+            for (JsonNode schedule : client.read(expect(201, client.post("/schedule/bulk", grid)))) {
+                scheduleIds.add(schedule.get("id").asLong());
+            }
+        }
+
+        DataSet dataSet = new DataSet(tennisCourtIds, guestIds, scheduleIds, firstDay, settings.days);
+        book(dataSet);
+        return dataSet;
+    }
+
+    /* Hands the booked share of the schedules out to the guests in turn, one batch per guest. */
+    private void book(DataSet dataSet) throws IOException, InterruptedException {
+        List<Long> scheduleIds = new ArrayList<>(dataSet.scheduleIds);
+        Collections.shuffle(scheduleIds, new Random(settings.seed));
+        List<Long> booked = scheduleIds.subList(0, (int) (scheduleIds.size() * settings.bookedShare));
+
+        Map<Long, List<Long>> scheduleIdsByGuest = new HashMap<>();
+        for (int i = 0; i < booked.size(); i++) {
+            scheduleIdsByGuest.computeIfAbsent(dataSet.guestIds.get(i % dataSet.guestIds.size()), guestId -> new ArrayList<>()).add(booked.get(i));
+        }
+
+        for (Map.Entry<Long, List<Long>> guestSchedules : scheduleIdsByGuest.entrySet()) {
+            List<Long> guestScheduleIds = guestSchedules.getValue();
+            for (int from = 0; from < guestScheduleIds.size(); from += MAX_BATCH) {
+                Map<String, Object> batch = new HashMap<>();
+                batch.put("guestId", guestSchedules.getKey());
+                batch.put("scheduleIds", guestScheduleIds.subList(from, Math.min(from + MAX_BATCH, guestScheduleIds.size())));
+                for (JsonNode reservation : client.read(expect(201, client.post("/reservation/batch", batch)))) {
+                    dataSet.activeReservationIds.add(reservation.get("id").asLong());
+                }
+            }
+        }
+    }
+}
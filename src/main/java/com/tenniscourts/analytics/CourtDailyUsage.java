@@ -0,0 +1,59 @@
+package com.tenniscourts.analytics;
+
+import com.tenniscourts.config.persistence.BaseEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/* Running totals for one court on one day, where the day is the day the schedules are played on.
+   The court is kept as a plain id so bumping the totals never has to load it.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_court_daily_usage_court_day",
+        columnNames = {"tennisCourtId", "usageDay"}))
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class CourtDailyUsage extends BaseEntity<Long> {
+
+    @Column
+    @NotNull
+    private Long tennisCourtId;
+
+    @Column
+    @NotNull
+    private LocalDate usageDay;
+
+    @Column
+    private long schedules;
+
+    /* Reservations that weren't cancelled or rescheduled away: ready to play, completed or no-show. */
+    @Column
+    private long reservations;
+
+    @Column
+    private long cancellations;
+
+    @Column
+    private long reschedules;
+
+    /* What we kept of the deposits of cancelled, rescheduled and no-show reservations; a no-show keeps all of it. */
+    @Column
+    @NotNull
+    @Builder.Default
+    private BigDecimal retainedDeposits = BigDecimal.ZERO;
+}
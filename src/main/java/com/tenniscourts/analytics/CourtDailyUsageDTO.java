@@ -0,0 +1,37 @@
+package com.tenniscourts.analytics;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourtDailyUsageDTO {
+
+    private Long tennisCourtId;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate usageDay;
+
+    private long schedules;
+
+    private long reservations;
+
+    private long cancellations;
+
+    private long reschedules;
+
+    private BigDecimal retainedDeposits;
+
+    /* Active reservations per schedule on the day; absent if the court had no schedules. */
+    private BigDecimal utilization;
+}
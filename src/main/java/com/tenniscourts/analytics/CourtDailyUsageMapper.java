@@ -0,0 +1,27 @@
+package com.tenniscourts.analytics;
+
+import org.mapstruct.AfterMapping;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+@Mapper(componentModel = "spring")
+public interface CourtDailyUsageMapper {
+
+    @Mapping(target = "utilization", ignore = true)
+    CourtDailyUsageDTO map(CourtDailyUsage source);
+
+    List<CourtDailyUsageDTO> map(List<CourtDailyUsage> source);
+
+    @AfterMapping
+    default void setUtilization(CourtDailyUsage source, @MappingTarget CourtDailyUsageDTO target) {
+        if (source.getSchedules() > 0) {
+            target.setUtilization(BigDecimal.valueOf(source.getReservations())
+                    .divide(BigDecimal.valueOf(source.getSchedules()), 2, RoundingMode.HALF_UP));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.tenniscourts.analytics;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface CourtDailyUsageRepository extends JpaRepository<CourtDailyUsage, Long> {
+
+    List<CourtDailyUsage> findByTennisCourtIdAndUsageDayBetweenOrderByUsageDay(Long tennisCourtId, LocalDate startDay, LocalDate endDay);
+
+    /* Adds to the totals in the database rather than read-modify-write, so two bookings on the same
+       court and day can't lose each other's update.
+     */
+    @Transactional
+    @Modifying
+    @Query("update CourtDailyUsage u set u.schedules = u.schedules + :schedules, " +
+            "u.reservations = u.reservations + :reservations, u.cancellations = u.cancellations + :cancellations, " +
+            "u.reschedules = u.reschedules + :reschedules, u.retainedDeposits = u.retainedDeposits + :retainedDeposits " +
+            "where u.tennisCourtId = :tennisCourtId and u.usageDay = :usageDay")
+    int increment(@Param("tennisCourtId") Long tennisCourtId,
+                  @Param("usageDay") LocalDate usageDay,
+                  @Param("schedules") long schedules,
+                  @Param("reservations") long reservations,
+                  @Param("cancellations") long cancellations,
+                  @Param("reschedules") long reschedules,
+                  @Param("retainedDeposits") BigDecimal retainedDeposits);
+
+    /* Rows of [tennisCourtId, day, schedule count]. */
+    @Query("select s.tennisCourt.id, cast(s.startDateTime as date), count(s) from Schedule s " +
+            "group by s.tennisCourt.id, cast(s.startDateTime as date)")
+    List<Object[]> countSchedulesByCourtAndDay();
+
+    /* Rows of [tennisCourtId, day, reservation status, reservation count, sum of values]. */
+    @Query("select s.tennisCourt.id, cast(s.startDateTime as date), r.reservationStatus, count(r), sum(r.value) " +
+            "from Reservation r join r.schedule s " +
+            "group by s.tennisCourt.id, cast(s.startDateTime as date), r.reservationStatus")
+    List<Object[]> sumReservationsByCourtDayAndStatus();
+}
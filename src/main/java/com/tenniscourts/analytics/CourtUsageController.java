@@ -0,0 +1,29 @@
+package com.tenniscourts.analytics;
+
+import com.tenniscourts.config.BaseRestController;
+import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@AllArgsConstructor
+@RestController
+public class CourtUsageController extends BaseRestController {
+
+    private final CourtUsageService courtUsageService;
+
+    @GetMapping("/analytics/court/{tennisCourtId}/usage")
+    public ResponseEntity<List<CourtDailyUsageDTO>> findCourtUsage(@PathVariable Long tennisCourtId,
+                                                                   @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+                                                                   @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to) {
+        return ResponseEntity.ok(courtUsageService.findCourtUsage(tennisCourtId, from, to));
+    }
+
+    @PostMapping("/analytics/usage/rebuild")
+    public ResponseEntity<Integer> rebuildCourtUsage() {
+        return ResponseEntity.ok(courtUsageService.rebuild());
+    }
+}
@@ -0,0 +1,163 @@
+package com.tenniscourts.analytics;
+
+import com.tenniscourts.reservations.Reservation;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.schedules.Schedule;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/* Keeps CourtDailyUsage in step with schedules and reservations. The record* methods are called from
+   inside the transaction making the change, so the totals commit or roll back together with it.
+ */
+@Service
+@AllArgsConstructor
+public class CourtUsageService {
+
+    private final CourtDailyUsageRepository courtDailyUsageRepository;
+
+    private final CourtDailyUsageMapper courtDailyUsageMapper;
+
+    public void recordSchedules(Collection<Schedule> schedules) {
+        schedules.stream()
+                .collect(Collectors.groupingBy(CourtDay::of, Collectors.counting()))
+                .forEach((courtDay, count) -> increment(courtDay.usage().schedules(count).build()));
+    }
+
+    public void recordBookings(Collection<Reservation> reservations) {
+        reservations.stream()
+                .collect(Collectors.groupingBy(reservation -> CourtDay.of(reservation.getSchedule()), Collectors.counting()))
+                .forEach((courtDay, count) -> increment(courtDay.usage().reservations(count).build()));
+    }
+
+    /* Expects the reservation after its refund has been taken off, so its value is what we kept. */
+    public void recordCancellation(Reservation reservation) {
+        recordCancellations(Collections.singletonList(reservation));
+    }
+
+    /* One update per court and day, however many reservations were cancelled on it. */
+    public void recordCancellations(Collection<Reservation> reservations) {
+        reservations.stream()
+                .collect(Collectors.groupingBy(reservation -> CourtDay.of(reservation.getSchedule())))
+                .forEach((courtDay, cancelled) -> increment(courtDay.usage()
+                        .reservations(-cancelled.size()).cancellations(cancelled.size())
+                        .retainedDeposits(cancelled.stream().map(Reservation::getValue).reduce(BigDecimal.ZERO, BigDecimal::add))
+                        .build()));
+    }
+
+    /* Same as recordCancellation, for the reservation that was moved away from. */
+    public void recordReschedule(Reservation previousReservation) {
+        increment(CourtDay.of(previousReservation.getSchedule()).usage()
+                .reservations(-1).reschedules(1).retainedDeposits(previousReservation.getValue()).build());
+    }
+
+    /* Completed reservations stay counted as reservations and get their deposit back, so only the
+       no-shows move the totals: their deposits are kept.
+     */
+    public void recordCompletions(Collection<Reservation> reservations) {
+        reservations.stream()
+                .filter(reservation -> ReservationStatus.NO_SHOW.equals(reservation.getReservationStatus()))
+                .collect(Collectors.groupingBy(reservation -> CourtDay.of(reservation.getSchedule())))
+                .forEach((courtDay, noShows) -> increment(courtDay.usage()
+                        .retainedDeposits(noShows.stream().map(Reservation::getValue).reduce(BigDecimal.ZERO, BigDecimal::add))
+                        .build()));
+    }
+
+    public List<CourtDailyUsageDTO> findCourtUsage(Long tennisCourtId, LocalDate startDay, LocalDate endDay) {
+        if (endDay.isBefore(startDay)) {
+            throw new IllegalArgumentException("The end of the period must not be before its start.");
+        }
+
+        return courtDailyUsageMapper.map(
+                courtDailyUsageRepository.findByTennisCourtIdAndUsageDayBetweenOrderByUsageDay(tennisCourtId, startDay, endDay));
+    }
+
+    /* Throws the rollups away and recomputes them from the schedule and reservation tables with two
+       grouped queries. Changes committed while this runs aren't seen by it, so it's best run while
+       bookings are quiet.
+     */
+    @Transactional
+    public int rebuild() {
+        Map<CourtDay, CourtDailyUsage> usages = new HashMap<>();
+        Function<CourtDay, CourtDailyUsage> newUsage = courtDay -> courtDay.usage().build();
+
+        for (Object[] row : courtDailyUsageRepository.countSchedulesByCourtAndDay()) {
+            usages.computeIfAbsent(CourtDay.of(row), newUsage).setSchedules((Long) row[2]);
+        }
+
+        for (Object[] row : courtDailyUsageRepository.sumReservationsByCourtDayAndStatus()) {
+            CourtDailyUsage usage = usages.computeIfAbsent(CourtDay.of(row), newUsage);
+            long count = (Long) row[3];
+            BigDecimal value = row[4] == null ? BigDecimal.ZERO : (BigDecimal) row[4];
+
+            switch ((ReservationStatus) row[2]) {
+                case READY_TO_PLAY:
+                case COMPLETED:
+                    usage.setReservations(usage.getReservations() + count);
+                    break;
+                case NO_SHOW:
+                    usage.setReservations(usage.getReservations() + count);
+                    usage.setRetainedDeposits(usage.getRetainedDeposits().add(value));
+                    break;
+                case CANCELLED:
+                    usage.setCancellations(count);
+                    usage.setRetainedDeposits(usage.getRetainedDeposits().add(value));
+                    break;
+                case RESCHEDULED:
+                    usage.setReschedules(count);
+                    usage.setRetainedDeposits(usage.getRetainedDeposits().add(value));
+                    break;
+            }
+        }
+
+        courtDailyUsageRepository.deleteAllInBatch();
+        courtDailyUsageRepository.saveAll(usages.values());
+        return usages.size();
+    }
+
+    /* The first time a court and day comes up there's no row to add to yet, so the delta becomes the row.
+       If another transaction inserts that row first, the unique constraint fails this one. Every caller
+       runs through OptimisticRetryExecutor, whose retry then takes the update path, except the sweeper,
+       which leaves the chunk to its next run.
+     */
+    private void increment(CourtDailyUsage delta) {
+        int updated = courtDailyUsageRepository.increment(delta.getTennisCourtId(), delta.getUsageDay(),
+                delta.getSchedules(), delta.getReservations(), delta.getCancellations(), delta.getReschedules(),
+                delta.getRetainedDeposits());
+
+        if (updated == 0) {
+            courtDailyUsageRepository.saveAndFlush(delta);
+        }
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class CourtDay {
+        private final Long tennisCourtId;
+        private final LocalDate day;
+
+        static CourtDay of(Schedule schedule) {
+            return new CourtDay(schedule.getTennisCourt().getId(), schedule.getStartDateTime().toLocalDate());
+        }
+
+        static CourtDay of(Object[] row) {
+            return new CourtDay((Long) row[0], ((Date) row[1]).toLocalDate());
+        }
+
+        CourtDailyUsage.CourtDailyUsageBuilder usage() {
+            return CourtDailyUsage.builder().tennisCourtId(tennisCourtId).usageDay(day);
+        }
+    }
+}
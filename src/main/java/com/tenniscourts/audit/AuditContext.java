@@ -0,0 +1,62 @@
+package com.tenniscourts.audit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.function.Supplier;
+
+/* Who is making the current change. AuditContextFilter fills it in once per request, and anything
+   written outside a request (startup data, scheduled jobs) is put down to the system user at this
+   server's address, which is looked up once rather than on every write.
+ */
+@Getter
+@AllArgsConstructor
+public class AuditContext {
+
+    private static final ThreadLocal<AuditContext> CURRENT = new ThreadLocal<>();
+
+    private final String ipAddress;
+
+    private final Long userId;
+
+    public static AuditContext current() {
+        AuditContext auditContext = CURRENT.get();
+        return auditContext == null ? SystemContextHolder.SYSTEM : auditContext;
+    }
+
+    public static void set(AuditContext auditContext) {
+        CURRENT.set(auditContext);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /* For work handed to another thread, so it's still stamped with the caller that asked for it. */
+    public static <T> Supplier<T> wrap(Supplier<T> action) {
+        AuditContext caller = CURRENT.get();
+        return () -> {
+            AuditContext previous = CURRENT.get();
+            CURRENT.set(caller);
+            try {
+                return action.get();
+            } finally {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    private static class SystemContextHolder {
+        private static final AuditContext SYSTEM = new AuditContext(localAddress(), CustomAuditEntityListener.USER_SYSTEM_ID);
+
+        private static String localAddress() {
+            try {
+                return InetAddress.getLocalHost().getHostAddress();
+            } catch (UnknownHostException e) {
+                return InetAddress.getLoopbackAddress().getHostAddress();
+            }
+        }
+    }
+}
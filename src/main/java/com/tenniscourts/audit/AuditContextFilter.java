@@ -0,0 +1,40 @@
+package com.tenniscourts.audit;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/* There's no authentication yet, so the user comes from an optional X-User-Id header and falls back
+   to the system user. The address is the servlet's remote address; behind a proxy, set
+   server.forward-headers-strategy so that it's the client's and not the proxy's.
+ */
+@Component
+public class AuditContextFilter extends OncePerRequestFilter {
+
+    public static final String USER_ID_HEADER = "X-User-Id";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AuditContext.set(new AuditContext(request.getRemoteAddr(), userId(request)));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            AuditContext.clear();
+        }
+    }
+
+    private Long userId(HttpServletRequest request) {
+        try {
+            String userId = request.getHeader(USER_ID_HEADER);
+            return userId == null ? CustomAuditEntityListener.USER_SYSTEM_ID : Long.valueOf(userId.trim());
+        } catch (NumberFormatException e) {
+            return CustomAuditEntityListener.USER_SYSTEM_ID;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.tenniscourts.audit;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/* Deliberately not a BaseEntity, so writing the audit log doesn't get audited itself. */
+@Entity
+@Table
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditLogEntry {
+
+    public enum Action {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_log_sequence")
+    @SequenceGenerator(name = "audit_log_sequence", sequenceName = "audit_log_entry_seq", allocationSize = 50)
+    private Long id;
+
+    @Column
+    private String entityName;
+
+    @Column
+    private String entityId;
+
+    @Column
+    @Enumerated(EnumType.STRING)
+    private Action action;
+
+    /* JSON object of property name to value; for updates only the changed properties, as [old, new]. */
+    @Lob
+    @Column
+    private String changes;
+
+    @Column
+    private Long userId;
+
+    @Column
+    private String ipAddress;
+
+    @Column
+    private LocalDateTime dateCreate;
+}
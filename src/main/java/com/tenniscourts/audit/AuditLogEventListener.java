@@ -0,0 +1,159 @@
+package com.tenniscourts.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tenniscourts.config.persistence.BaseEntity;
+import lombok.AllArgsConstructor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/* Turns committed inserts, updates and deletes of BaseEntity rows into audit log entries. It runs after
+   commit, so rolled back changes never show up, and the entries go to AuditLogWriter's queue rather
+   than the database. Turn it off with audit.log.enabled=false.
+
+   Never lazy, as nothing asks for it: it has to register itself before the first commit.
+ */
+@Component
+@Lazy(false)
+@AllArgsConstructor
+@ConditionalOnProperty(name = "audit.log.enabled", havingValue = "true", matchIfMissing = true)
+public class AuditLogEventListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    /* Already on every row; repeating them in the changes would only be noise. */
+    private static final Set<String> STAMP_PROPERTIES = new HashSet<>(Arrays.asList(
+            "ipNumberUpdate", "userCreate", "userUpdate", "dateUpdate", "ipNumberCreate", "dateCreate"));
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final AuditLogWriter auditLogWriter;
+
+    private final ObjectMapper objectMapper;
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        String[] propertyNames = event.getPersister().getPropertyNames();
+        for (int i = 0; i < propertyNames.length; i++) {
+            if (isAudited(propertyNames[i], event.getState()[i])) {
+                changes.put(propertyNames[i], value(event.getState()[i]));
+            }
+        }
+        append(event.getEntity(), event.getId(), AuditLogEntry.Action.CREATE, changes);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        String[] propertyNames = event.getPersister().getPropertyNames();
+        int[] dirtyProperties = event.getDirtyProperties();
+        for (int i = 0; i < propertyNames.length; i++) {
+            int property = i;
+            boolean dirty = dirtyProperties == null || Arrays.stream(dirtyProperties).anyMatch(index -> index == property);
+            if (dirty && isAudited(propertyNames[i], event.getState()[i])) {
+                Object oldValue = event.getOldState() == null ? null : value(event.getOldState()[i]);
+                changes.put(propertyNames[i], Arrays.asList(oldValue, value(event.getState()[i])));
+            }
+        }
+        append(event.getEntity(), event.getId(), AuditLogEntry.Action.UPDATE, changes);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        append(event.getEntity(), event.getId(), AuditLogEntry.Action.DELETE, new LinkedHashMap<>());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return BaseEntity.class.isAssignableFrom(persister.getMappedClass());
+    }
+
+    /* Still abstract in Hibernate 5.4, so it has to be here; deprecated along with it so it doesn't warn. */
+    @Override
+    @Deprecated
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    private void append(Object entity, Object id, AuditLogEntry.Action action, Map<String, Object> changes) {
+        if (!(entity instanceof BaseEntity)) {
+            return;
+        }
+
+        AuditContext auditContext = AuditContext.current();
+        auditLogWriter.append(AuditLogEntry.builder()
+                .entityName(entity.getClass().getSimpleName())
+                .entityId(String.valueOf(id))
+                .action(action)
+                .changes(toJson(changes))
+                .userId(auditContext.getUserId())
+                .ipAddress(auditContext.getIpAddress())
+                .dateCreate(LocalDateTime.now())
+                .build());
+    }
+
+    private boolean isAudited(String propertyName, Object value) {
+        return !STAMP_PROPERTIES.contains(propertyName) && !(value instanceof Collection);
+    }
+
+    /* Associations are written as their ids; reading anything more off them could load them. */
+    private Object value(Object value) {
+        if (value instanceof HibernateProxy) {
+            return ((HibernateProxy) value).getHibernateLazyInitializer().getIdentifier();
+        }
+        if (value instanceof BaseEntity) {
+            return ((BaseEntity<?>) value).getId();
+        }
+        return value;
+    }
+
+    private String toJson(Map<String, Object> changes) {
+        try {
+            return objectMapper.writeValueAsString(changes);
+        } catch (JsonProcessingException e) {
+            return changes.toString();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.tenniscourts.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Takes audit entries off the request threads. append only ever puts the entry on a bounded queue;
+   one background thread drains it and saves whatever has piled up (up to a batch) in one transaction,
+   which goes out as JDBC batches. If the database falls far enough behind for the queue to fill,
+   entries are dropped and counted rather than making bookings wait.
+ */
+@Slf4j
+@Component
+public class AuditLogWriter {
+
+    private final AuditLogEntryRepository auditLogEntryRepository;
+
+    private final TransactionOperations transactionOperations;
+
+    private final BlockingQueue<AuditLogEntry> queue;
+
+    private final int batchSize;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running;
+
+    private Thread worker;
+
+    public AuditLogWriter(AuditLogEntryRepository auditLogEntryRepository,
+                          TransactionOperations transactionOperations,
+                          @Value("${audit.log.queue-capacity:10000}") int queueCapacity,
+                          @Value("${audit.log.batch-size:500}") int batchSize) {
+        this.auditLogEntryRepository = auditLogEntryRepository;
+        this.transactionOperations = transactionOperations;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+    }
+
+    public boolean append(AuditLogEntry auditLogEntry) {
+        if (queue.offer(auditLogEntry)) {
+            return true;
+        }
+
+        if (dropped.incrementAndGet() % 1000 == 1) {
+            log.warn("Audit log queue is full; {} entries dropped so far.", dropped.get());
+        }
+        return false;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /* Writes everything queued so far on the calling thread. */
+    public int flush() {
+        int written = 0;
+        List<AuditLogEntry> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            written += write(batch);
+            batch.clear();
+        }
+        return written;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::run, "audit-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /* No interrupt: an interrupted JDBC write can take the connection down with it. The worker notices
+       within a second of polling and whatever it left behind is flushed here.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+        flush();
+    }
+
+    private void run() {
+        List<AuditLogEntry> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                AuditLogEntry first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private int write(List<AuditLogEntry> batch) {
+        try {
+            transactionOperations.executeWithoutResult(status -> auditLogEntryRepository.saveAll(batch));
+            return batch.size();
+        } catch (RuntimeException e) {
+            log.error("Could not write {} audit log entries.", batch.size(), e);
+            return 0;
+        }
+    }
+}
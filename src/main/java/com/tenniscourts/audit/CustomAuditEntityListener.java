@@ -4,42 +4,37 @@ import com.tenniscourts.config.persistence.BaseEntity;
 
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
 import java.time.LocalDateTime;
 import java.util.Objects;
 
+/* Stamps from the AuditContext already in memory; nothing here does any I/O. */
 public class CustomAuditEntityListener {
 
     public final static Long USER_SYSTEM_ID = 1L;
 
     @PreUpdate
-    public void preUpdate(BaseEntity baseEntity) throws UnknownHostException {
+    public void preUpdate(BaseEntity baseEntity) {
+        AuditContext auditContext = AuditContext.current();
 
         baseEntity.setDateUpdate(LocalDateTime.now());
-        if (Objects.isNull(baseEntity.getUserUpdate())) {
-            baseEntity.setUserUpdate(USER_SYSTEM_ID);
-        }
-        if (Objects.isNull(baseEntity.getIpNumberUpdate())) {
-            baseEntity.setIpNumberUpdate(InetAddress.getLocalHost().getHostAddress());
-        }
+        baseEntity.setUserUpdate(auditContext.getUserId());
+        baseEntity.setIpNumberUpdate(auditContext.getIpAddress());
     }
 
     @PrePersist
-    public void prePersist(BaseEntity baseEntity) throws UnknownHostException {
-        baseEntity.setDateUpdate(LocalDateTime.now());
-        if (Objects.isNull(baseEntity.getUserUpdate())) {
-            baseEntity.setUserUpdate(USER_SYSTEM_ID);
-        }
-        baseEntity.setDateCreate(LocalDateTime.now());
+    public void prePersist(BaseEntity baseEntity) {
+        AuditContext auditContext = AuditContext.current();
+        LocalDateTime now = LocalDateTime.now();
+
+        baseEntity.setDateUpdate(now);
+        baseEntity.setDateCreate(now);
+        baseEntity.setUserUpdate(auditContext.getUserId());
+        baseEntity.setIpNumberUpdate(auditContext.getIpAddress());
         if (Objects.isNull(baseEntity.getUserCreate())) {
-            baseEntity.setUserCreate(USER_SYSTEM_ID);
-        }
-        if (Objects.isNull(baseEntity.getIpNumberCreate())) {
-            baseEntity.setIpNumberUpdate(InetAddress.getLocalHost().getHostAddress());
+            baseEntity.setUserCreate(auditContext.getUserId());
         }
         if (Objects.isNull(baseEntity.getIpNumberCreate())) {
-            baseEntity.setIpNumberCreate(InetAddress.getLocalHost().getHostAddress());
+            baseEntity.setIpNumberCreate(auditContext.getIpAddress());
         }
     }
-}
\ No newline at end of file
+}
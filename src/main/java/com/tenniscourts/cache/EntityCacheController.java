@@ -0,0 +1,21 @@
+package com.tenniscourts.cache;
+
+import com.tenniscourts.config.BaseRestController;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@AllArgsConstructor
+@RestController
+public class EntityCacheController extends BaseRestController {
+
+    private final EntityCacheService entityCacheService;
+
+    @GetMapping("/cache/statistics")
+    public ResponseEntity<List<EntityCacheStatisticsDTO>> findCacheStatistics() {
+        return ResponseEntity.ok(entityCacheService.findStatistics());
+    }
+}
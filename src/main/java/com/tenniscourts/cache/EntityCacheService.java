@@ -0,0 +1,37 @@
+package com.tenniscourts.cache;
+
+import lombok.AllArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/* Courts and guests are held in Hibernate's second-level cache (see ehcache.xml for the sizes and TTLs),
+   so every findById for them, including the ones made while booking and scheduling, is served from memory
+   after the first load. Updates and deletes through JPA evict the entry on commit, so there's nothing to
+   invalidate by hand; this just reports how well the cache is doing.
+ */
+@Service
+@AllArgsConstructor
+public class EntityCacheService {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public List<EntityCacheStatisticsDTO> findStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames()).sorted().map(region -> {
+            CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+            return EntityCacheStatisticsDTO.builder().region(region)
+                    .hitCount(regionStatistics.getHitCount())
+                    .missCount(regionStatistics.getMissCount())
+                    .putCount(regionStatistics.getPutCount())
+                    .size(regionStatistics.getElementCountInMemory() < 0 ? null : regionStatistics.getElementCountInMemory()).build();
+        }).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,26 @@
+package com.tenniscourts.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EntityCacheStatisticsDTO {
+
+    private String region;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long putCount;
+
+    /* Entries currently held; absent if the cache provider doesn't report it, which JCache doesn't. */
+    private Long size;
+}
@@ -1,5 +1,7 @@
 package com.tenniscourts.config;
 
+import com.tenniscourts.config.persistence.EntityVersion;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import springfox.documentation.annotations.ApiIgnore;
 
@@ -12,4 +14,11 @@ public class BaseRestController {
         return ServletUriComponentsBuilder.fromCurrentRequest().path(
                 "/{id}").buildAndExpand(entityId).toUri();
     }
+
+    /* Sets ETag and Last-Modified on the response either way; when the client's copy is still current the
+       response has already been turned into a 304 and the caller should return without building a body.
+     */
+    protected boolean isNotModified(WebRequest webRequest, EntityVersion entityVersion) {
+        return webRequest.checkNotModified(entityVersion.getETag(), entityVersion.getLastModifiedMillis());
+    }
 }
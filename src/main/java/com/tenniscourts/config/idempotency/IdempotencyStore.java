@@ -0,0 +1,156 @@
+package com.tenniscourts.config.idempotency;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/* Remembers the responses of writes sent with an Idempotency-Key header, so a client retrying one it
+   never got the answer to gets the original response back instead of booking twice or being told the
+   slot is already reserved (by itself). A replay doesn't reach the service at all, and is marked with
+   an Idempotent-Replayed header.
+
+   Duplicates arriving while the first is still running wait on it rather than running alongside it,
+   the same way ScheduleRangeCache loads a window once. Failures aren't kept: whoever was waiting gets the
+   same error, and the next retry runs again.
+
+   A key belongs to the request it was first sent with; reusing it for another one is rejected. Entries
+   go after the TTL or once there are more than max-entries, oldest first. It's per instance, like the
+   other in-memory state here, so retries have to come back to the same node to be recognized.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final long ttlNanos;
+
+    private final int maxEntries;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    public IdempotencyStore(@Value("${idempotency.ttl-minutes:1440}") long ttlMinutes,
+                            @Value("${idempotency.max-entries:10000}") int maxEntries) {
+        this.ttlNanos = TimeUnit.MINUTES.toNanos(ttlMinutes);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Runs the write, or replays its response if it already ran with the same key.
+     *
+     * @param key     the Idempotency-Key header; the write just runs when there is none
+     * @param request what identifies the request, compared with equals when the key comes back
+     * @param write   the write
+     * @return the response of the write
+     */
+    public <T> ResponseEntity<T> execute(String key, Object request, Supplier<ResponseEntity<T>> write) {
+        if (key == null) {
+            return write.get();
+        }
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(IDEMPOTENCY_KEY + " must be between 1 and " + MAX_KEY_LENGTH + " characters.");
+        }
+
+        Entry created = new Entry(key, request, System.nanoTime(), new CompletableFuture<>());
+        Entry existing = entries.compute(key, (k, entry) -> entry == null || entry.isExpired(ttlNanos) ? created : entry);
+        if (existing != created) {
+            if (!existing.getRequest().equals(request)) {
+                throw new IllegalArgumentException(IDEMPOTENCY_KEY + " was already used for a different request.");
+            }
+            return replay(join(existing.getResponse()));
+        }
+
+        insertionOrder.add(created);
+        evict();
+
+        try {
+            ResponseEntity<?> response = write.get();
+            created.getResponse().complete(response);
+            return cast(response);
+        } catch (RuntimeException | Error e) {
+            entries.remove(key, created);
+            created.getResponse().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        insertionOrder.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /* Entries are all kept for the same TTL, so the expired ones are at the head of the queue. The queue holds
+       the entries themselves: a key that failed or expired and came back is queued again, and the entry its old
+       place in line belonged to is gone from the map, so that place is just dropped. Going by key there would
+       evict the new entry, possibly while its write is still running.
+     */
+    private void evict() {
+        Entry oldest;
+        while ((oldest = insertionOrder.peek()) != null) {
+            boolean stale = entries.get(oldest.getKey()) != oldest;
+            if (!stale && !oldest.isExpired(ttlNanos) && entries.size() <= maxEntries) {
+                break;
+            }
+            insertionOrder.poll();
+            if (!stale) {
+                entries.remove(oldest.getKey(), oldest);
+            }
+        }
+    }
+
+    private static <T> ResponseEntity<T> replay(ResponseEntity<?> response) {
+        return cast(ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(IDEMPOTENT_REPLAYED, "true")
+                .body(response.getBody()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ResponseEntity<T> cast(ResponseEntity<?> response) {
+        return (ResponseEntity<T>) response;
+    }
+
+    private static ResponseEntity<?> join(CompletableFuture<ResponseEntity<?>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Entry {
+        private final String key;
+        private final Object request;
+        private final long createdNanos;
+        private final CompletableFuture<ResponseEntity<?>> response;
+
+        private boolean isExpired(long ttlNanos) {
+            return System.nanoTime() - createdNanos >= ttlNanos;
+        }
+    }
+}
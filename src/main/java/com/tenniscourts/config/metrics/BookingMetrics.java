@@ -0,0 +1,88 @@
+package com.tenniscourts.config.metrics;
+
+import com.tenniscourts.config.persistence.OptimisticRetryExecutor;
+import com.tenniscourts.config.persistence.TransactionCallbacks;
+import com.tenniscourts.exceptions.EntityNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.function.Supplier;
+
+/**
+ * Timers and counters of the booking and scheduling commands. Every command is timed under
+ * {@code booking.operations}, tagged with the operation and how it ended; validation rejections and
+ * conflicts that were still there after the retries are counted on their own as well, and refunds are
+ * counted once the cancellation or reschedule that issued them has committed.
+ */
+@Component
+public class BookingMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter refunds;
+
+    private final Counter refundedAmount;
+
+    public BookingMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.refunds = Counter.builder("booking.refunds").description("Refunds issued").register(meterRegistry);
+        this.refundedAmount = Counter.builder("booking.refunds.amount").description("Sum of the refunds issued")
+                .register(meterRegistry);
+    }
+
+    public <T> T record(String operation, Supplier<T> action) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            T result = action.get();
+            outcome = "success";
+            return result;
+        } catch (IllegalArgumentException e) {
+            outcome = "rejected";
+            meterRegistry.counter("booking.rejections", "operation", operation).increment();
+            throw e;
+        } catch (OptimisticLockingFailureException e) {
+            outcome = conflict(operation);
+            throw e;
+        } catch (DataIntegrityViolationException e) {
+            if (OptimisticRetryExecutor.isLostRace(e)) {
+                outcome = conflict(operation);
+            }
+            throw e;
+        } catch (EntityNotFoundException e) {
+            outcome = "not_found";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("booking.operations")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    public void record(String operation, Runnable action) {
+        record(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private String conflict(String operation) {
+        meterRegistry.counter("booking.conflicts", "operation", operation).increment();
+        return "conflict";
+    }
+
+    public void recordRefund(BigDecimal refundValue) {
+        if (refundValue.signum() > 0) {
+            TransactionCallbacks.afterCommit(() -> {
+                refunds.increment();
+                refundedAmount.increment(refundValue.doubleValue());
+            });
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.tenniscourts.config.metrics;
+
+import java.util.regex.Pattern;
+
+/* Turns SQL into the shape it's grouped under, so the same statement issued with different literals or a
+   different number of IN parameters (batch fetching pads those up to the batch size) is counted as one.
+ */
+final class SqlStatements {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+
+    private SqlStatements() {
+    }
+
+    static String singleLine(String sql) {
+        return WHITESPACE.matcher(sql).replaceAll(" ").trim();
+    }
+
+    static String normalize(String sql) {
+        String normalized = STRING_LITERAL.matcher(singleLine(sql)).replaceAll("?");
+        normalized = NUMERIC_LITERAL.matcher(normalized).replaceAll("?");
+        return PARAMETER_LIST.matcher(normalized).replaceAll("(?, ...)");
+    }
+}
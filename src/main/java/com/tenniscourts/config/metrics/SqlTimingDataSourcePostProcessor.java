@@ -0,0 +1,31 @@
+package com.tenniscourts.config.metrics;
+
+import lombok.AllArgsConstructor;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/* Puts the data source Spring Boot configured behind a proxy that reports every statement to
+   SqlTimingListener. The listener is looked up only once the data source exists, so the meter registry
+   isn't pulled in while the post processors themselves are being created.
+ */
+@Component
+@AllArgsConstructor
+public class SqlTimingDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<SqlTimingListener> sqlTimingListener;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource)) {
+            return bean;
+        }
+
+        return ProxyDataSourceBuilder.create(beanName, (DataSource) bean)
+                .listener(sqlTimingListener.getObject())
+                .build();
+    }
+}
@@ -0,0 +1,103 @@
+package com.tenniscourts.config.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/* Times every statement that goes through the data source (see SqlTimingDataSourcePostProcessor) into
+   sql.statements, one histogram per normalized statement, and logs a sample of them plus anything slower
+   than the threshold. This is what stands in for show-sql: the timings are always there, and the log only
+   costs something for the statements that get picked.
+
+   Hibernate only issues a bounded set of statements, but anything past max-statements is put under
+   "other" so a stray one built from literals can't grow the registry without end.
+ */
+@Slf4j
+@Component
+public class SqlTimingListener implements QueryExecutionListener {
+
+    private static final String STARTED = SqlTimingListener.class.getName() + ".started";
+
+    private static final String OTHER = "other";
+
+    private static final Duration[] BUCKETS = {Duration.ofMillis(1), Duration.ofMillis(5), Duration.ofMillis(10),
+            Duration.ofMillis(25), Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250),
+            Duration.ofMillis(500), Duration.ofSeconds(1)};
+
+    private final MeterRegistry meterRegistry;
+
+    private final double sampleRate;
+
+    private final long slowThresholdNanos;
+
+    private final int maxStatements;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public SqlTimingListener(MeterRegistry meterRegistry,
+                             @Value("${sql.log.sample-rate:0}") double sampleRate,
+                             @Value("${sql.log.slow-threshold-ms:500}") long slowThresholdMillis,
+                             @Value("${sql.metrics.max-statements:200}") int maxStatements) {
+        this.meterRegistry = meterRegistry;
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.maxStatements = maxStatements;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(STARTED, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Long started = execInfo.getCustomValue(STARTED, Long.class);
+        long elapsedNanos = started == null ? TimeUnit.MILLISECONDS.toNanos(execInfo.getElapsedTime()) : System.nanoTime() - started;
+
+        for (QueryInfo queryInfo : queryInfoList) {
+            timer(SqlStatements.normalize(queryInfo.getQuery())).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        if (elapsedNanos >= slowThresholdNanos) {
+            log.warn("Slow statement took {} ms{}: {}", TimeUnit.NANOSECONDS.toMillis(elapsedNanos), batch(execInfo), statements(queryInfoList));
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            log.info("Statement took {} us{}: {}", TimeUnit.NANOSECONDS.toMicros(elapsedNanos), batch(execInfo), statements(queryInfoList));
+        }
+    }
+
+    private Timer timer(String statement) {
+        Timer timer = timers.get(statement);
+        if (timer != null) {
+            return timer;
+        }
+
+        String tag = timers.size() < maxStatements ? statement : OTHER;
+        return timers.computeIfAbsent(tag, t -> Timer.builder("sql.statements")
+                .description("Statements executed, by normalized SQL")
+                .tag("statement", t)
+                .sla(BUCKETS)
+                .register(meterRegistry));
+    }
+
+    private static String batch(ExecutionInfo execInfo) {
+        return execInfo.isBatch() ? " (batch of " + execInfo.getBatchSize() + ")" : "";
+    }
+
+    private static String statements(List<QueryInfo> queryInfoList) {
+        return queryInfoList.stream().map(queryInfo -> SqlStatements.singleLine(queryInfo.getQuery()))
+                .collect(Collectors.joining("; "));
+    }
+}
@@ -0,0 +1,50 @@
+package com.tenniscourts.config.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/* Counts the SQL statements Hibernate prepares for the current request. Hibernate instantiates it itself
+   (hibernate.session_factory.statement_inspector), so the count lives in a thread local that
+   StatementCountFilter opens per request. Statements outside a request, like the audit log writer's
+   or the sweeper's, aren't counted anywhere.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<AtomicInteger> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        AtomicInteger count = CURRENT.get();
+        if (count != null) {
+            count.incrementAndGet();
+        }
+        return sql;
+    }
+
+    public static void start() {
+        CURRENT.set(new AtomicInteger());
+    }
+
+    /* The statements counted since start, and stops counting. */
+    public static int stop() {
+        AtomicInteger count = CURRENT.get();
+        CURRENT.remove();
+        return count == null ? 0 : count.get();
+    }
+
+    /* For work handed to another thread, so its statements still count for the request that asked for it. */
+    public static <T> Supplier<T> wrap(Supplier<T> action) {
+        AtomicInteger caller = CURRENT.get();
+        return () -> {
+            AtomicInteger previous = CURRENT.get();
+            CURRENT.set(caller);
+            try {
+                return action.get();
+            } finally {
+                CURRENT.set(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package com.tenniscourts.config.pagination;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/* The position of the last row of a page: its id, plus the date/time it's sorted by for listings
+   ordered by time. Clients only ever see it Base64 encoded and hand it back as-is.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class KeysetCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime dateTime;
+
+    private final Long id;
+
+    public static KeysetCursor of(Long id) {
+        return new KeysetCursor(null, id);
+    }
+
+    public static KeysetCursor of(LocalDateTime dateTime, Long id) {
+        return new KeysetCursor(dateTime, id);
+    }
+
+    public String encode() {
+        String keys = dateTime == null ? String.valueOf(id) : dateTime + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(keys.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String[] keys = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\" + SEPARATOR);
+            if (keys.length == 1) {
+                return of(Long.valueOf(keys[0]));
+            } else if (keys.length == 2) {
+                return of(LocalDateTime.parse(keys[0]), Long.valueOf(keys[1]));
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // Falls through to the same error as a cursor with the wrong number of keys.
+        }
+
+        throw new IllegalArgumentException("Invalid cursor.");
+    }
+
+    public LocalDateTime requireDateTime() {
+        if (dateTime == null) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+        return dateTime;
+    }
+}
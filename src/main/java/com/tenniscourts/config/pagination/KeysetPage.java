@@ -0,0 +1,35 @@
+package com.tenniscourts.config.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+/* One page of a keyset paginated listing. The seek queries always read from the first row after the
+   cursor, so the page number stays at zero and a deep page costs the same as the first one.
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetPage<T> {
+
+    public static final int MAX_LIMIT = 500;
+
+    private final List<T> content;
+
+    /* Absent on the last page. */
+    private final String nextCursor;
+
+    public static Pageable limit(int limit) {
+        return PageRequest.of(0, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    public static <E, T> KeysetPage<T> of(Slice<E> slice, Function<List<E>, List<T>> mapper, Function<E, KeysetCursor> cursorOf) {
+        List<E> rows = slice.getContent();
+        String nextCursor = slice.hasNext() ? cursorOf.apply(rows.get(rows.size() - 1)).encode() : null;
+        return new KeysetPage<>(mapper.apply(rows), nextCursor);
+    }
+}
@@ -0,0 +1,82 @@
+package com.tenniscourts.config.persistence;
+
+import lombok.Getter;
+import org.springframework.data.domain.Slice;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/* What a conditional GET compares against: how many rows a response is made of and the latest dateUpdate
+   among them and whatever they embed. The repositories build it in a single aggregate query
+   (select new ...EntityVersion(count(x), max(x.dateUpdate), ...)), so checking whether a client's copy is
+   still good costs one row and no mapping. JPQL constructor expressions need an exact match, hence the
+   constructor per number of dates.
+
+   Listings are versioned by page instead (see RowVersion): the ETag is a hash of which rows the page holds,
+   how fresh each one is and whether there's a next page, so it changes exactly when the page would.
+ */
+@Getter
+public class EntityVersion {
+
+    private final long count;
+
+    /* Absent if none of the rows were ever stamped, like the sample data seeded by db/seed. */
+    private final LocalDateTime lastModified;
+
+    private final String eTag;
+
+    public EntityVersion(Long count, LocalDateTime dateUpdate) {
+        this(count, Stream.of(dateUpdate));
+    }
+
+    public EntityVersion(Long count, LocalDateTime dateUpdate, LocalDateTime embeddedDateUpdate) {
+        this(count, Stream.of(dateUpdate, embeddedDateUpdate));
+    }
+
+    public EntityVersion(Long count, LocalDateTime dateUpdate, LocalDateTime embeddedDateUpdate, LocalDateTime otherEmbeddedDateUpdate) {
+        this(count, Stream.of(dateUpdate, embeddedDateUpdate, otherEmbeddedDateUpdate));
+    }
+
+    private EntityVersion(Long count, Stream<LocalDateTime> dateUpdates) {
+        this.count = count == null ? 0 : count;
+        this.lastModified = dateUpdates.filter(Objects::nonNull).max(LocalDateTime::compareTo).orElse(null);
+        this.eTag = this.count + "-" + (lastModified == null ? 0 : toEpochMilli(lastModified));
+    }
+
+    public EntityVersion(String eTag, LocalDateTime lastModified) {
+        this.count = 1;
+        this.lastModified = lastModified;
+        this.eTag = eTag;
+    }
+
+    public static EntityVersion ofPage(Slice<RowVersion> page) {
+        StringBuilder rows = new StringBuilder();
+        LocalDateTime lastModified = null;
+        for (RowVersion row : page.getContent()) {
+            rows.append(row.getId()).append(':')
+                    .append(row.getLastModified() == null ? 0 : toEpochMilli(row.getLastModified())).append(',');
+            if (row.getLastModified() != null && (lastModified == null || row.getLastModified().isAfter(lastModified))) {
+                lastModified = row.getLastModified();
+            }
+        }
+        rows.append(page.hasNext());
+        return new EntityVersion(DigestUtils.md5DigestAsHex(rows.toString().getBytes(StandardCharsets.UTF_8)), lastModified);
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /* -1 tells Spring there's no Last-Modified to compare. */
+    public long getLastModifiedMillis() {
+        return lastModified == null ? -1 : toEpochMilli(lastModified);
+    }
+
+    private static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
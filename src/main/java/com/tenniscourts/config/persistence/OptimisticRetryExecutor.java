@@ -0,0 +1,80 @@
+package com.tenniscourts.config.persistence;
+
+import lombok.AllArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Runs an action in its own transaction and runs it again, in a new transaction, when it loses
+ * a race against a concurrent writer. The action must re-read everything it depends on, so a
+ * retry either succeeds or fails validation against what the other writer committed.
+ */
+@Component
+@AllArgsConstructor
+public class OptimisticRetryExecutor {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    /* The unique constraints two writers can both pass the checks for and then collide on: the "active" ids
+       keeping a schedule to one reservation and a guest to one reservation or waitlist entry per schedule, a
+       court's schedules not starting together, and the first insert of a usage rollup row. Anything else the
+       database rejects (not null, foreign keys) is bad input or a bug, and running it again won't change that.
+     */
+    private static final List<String> RACE_CONSTRAINTS = Arrays.asList(
+            "uk_reservation_active_schedule",
+            "uk_reservation_schedule_active_guest",
+            "uk_waitlist_entry_schedule_active_guest",
+            "uk_schedule_tennis_court_start_date_time",
+            "uk_court_daily_usage_court_day");
+
+    private final TransactionOperations transactionOperations;
+
+    /**
+     * Executes the action, retrying it on optimistic locking failures and on violations of the constraints
+     * concurrent writers race on.
+     *
+     * @param <T>    the result type
+     * @param action the action
+     * @return the result of the first attempt that commits
+     */
+    public <T> T execute(Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionOperations.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+            } catch (DataIntegrityViolationException e) {
+                if (!isLostRace(e) || attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells whether a constraint violation is one of the races against a concurrent writer.
+     *
+     * @param e the violation
+     * @return true if it violated one of the constraints concurrent writers race on
+     */
+    public static boolean isLostRace(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            String violated = cause instanceof ConstraintViolationException && ((ConstraintViolationException) cause).getConstraintName() != null
+                    ? ((ConstraintViolationException) cause).getConstraintName() : cause.getMessage();
+            if (violated != null && RACE_CONSTRAINTS.stream().anyMatch(violated.toLowerCase(Locale.ROOT)::contains)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,33 @@
+package com.tenniscourts.config.persistence;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/* One row of a listing page the way a conditional GET sees it: its id and the latest dateUpdate of the row
+   and whatever it embeds. The repositories select these with the same keyset predicate and limit as the page
+   itself, so the version of a page costs a seek over the page and not an aggregate over everything it could
+   be cut from. Same constructor per number of dates as EntityVersion, for the same reason.
+ */
+@Getter
+public class RowVersion {
+
+    private final Long id;
+
+    private final LocalDateTime lastModified;
+
+    public RowVersion(Long id, LocalDateTime dateUpdate) {
+        this(id, Stream.of(dateUpdate));
+    }
+
+    public RowVersion(Long id, LocalDateTime dateUpdate, LocalDateTime embeddedDateUpdate, LocalDateTime otherEmbeddedDateUpdate) {
+        this(id, Stream.of(dateUpdate, embeddedDateUpdate, otherEmbeddedDateUpdate));
+    }
+
+    private RowVersion(Long id, Stream<LocalDateTime> dateUpdates) {
+        this.id = id;
+        this.lastModified = dateUpdates.filter(Objects::nonNull).max(LocalDateTime::compareTo).orElse(null);
+    }
+}
@@ -0,0 +1,26 @@
+package com.tenniscourts.config.startup;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BeanStartupDTO {
+
+    private String name;
+
+    private String type;
+
+    private String configuration;
+
+    private double totalMillis;
+
+    /* Without the time spent creating the beans it depends on. */
+    private double selfMillis;
+}
@@ -0,0 +1,114 @@
+package com.tenniscourts.config.startup;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* Times every bean from just before it's instantiated until it's fully initialized. Creating a bean
+   creates its dependencies on the way, so each bean also gets its self time, which leaves out the beans
+   created inside it; that's the number that says where startup actually goes. Beans made by a @Bean
+   method are put down to the configuration class declaring it, which is how the time of each
+   auto-configuration adds up.
+
+   Only the beans created until the application is ready are kept. Beans created before this post
+   processor itself (the other post processors) aren't seen at all.
+ */
+@Component
+public class BeanStartupTimer implements InstantiationAwareBeanPostProcessor, BeanFactoryAware {
+
+    private final ThreadLocal<Deque<Frame>> frames = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final Map<String, BeanTiming> timings = new ConcurrentHashMap<>();
+
+    private ConfigurableListableBeanFactory beanFactory;
+
+    private volatile boolean recording = true;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+    }
+
+    @Override
+    public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) throws BeansException {
+        if (recording) {
+            frames.get().push(new Frame(beanName, System.nanoTime()));
+        }
+        return null;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        /* Not on the stack for beans created before recording started, and for what a factory bean
+           returns, which goes through here again under the factory's name. Frames above it are
+           beans whose creation failed.
+         */
+        Deque<Frame> stack = frames.get();
+        if (stack.stream().noneMatch(frame -> frame.beanName.equals(beanName))) {
+            return bean;
+        }
+
+        Frame frame = stack.pop();
+        while (!frame.beanName.equals(beanName)) {
+            frame = stack.pop();
+        }
+
+        long totalNanos = System.nanoTime() - frame.startedNanos;
+        if (!stack.isEmpty()) {
+            stack.peek().childNanos += totalNanos;
+        }
+
+        timings.put(beanName, new BeanTiming(beanName, bean.getClass().getName(), configurationOf(beanName),
+                totalNanos, totalNanos - frame.childNanos));
+        return bean;
+    }
+
+    void stopRecording() {
+        recording = false;
+    }
+
+    List<BeanTiming> getTimings() {
+        return new ArrayList<>(timings.values());
+    }
+
+    /* The class declaring the @Bean method the bean comes from, or none for scanned components. */
+    private String configurationOf(String beanName) {
+        if (!beanFactory.containsBeanDefinition(beanName)) {
+            return null;
+        }
+
+        BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+        String factoryBeanName = beanDefinition.getFactoryBeanName();
+        if (factoryBeanName == null || !beanFactory.containsBeanDefinition(factoryBeanName)) {
+            return null;
+        }
+
+        String configurationClass = beanFactory.getBeanDefinition(factoryBeanName).getBeanClassName();
+        return configurationClass == null ? null : configurationClass.replaceAll("\\$\\$.*$", "");
+    }
+
+    private static class Frame {
+
+        private final String beanName;
+
+        private final long startedNanos;
+
+        private long childNanos;
+
+        private Frame(String beanName, long startedNanos) {
+            this.beanName = beanName;
+            this.startedNanos = startedNanos;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.tenniscourts.config.startup;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * How long one bean took to create, with and without the beans created inside it.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+class BeanTiming {
+
+    private final String beanName;
+
+    private final String beanClass;
+
+    /* The configuration class declaring the bean's @Bean method; null for scanned components. */
+    private final String configuration;
+
+    private final long totalNanos;
+
+    private final long selfNanos;
+}
@@ -0,0 +1,24 @@
+package com.tenniscourts.config.startup;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConfigurationStartupDTO {
+
+    private String configuration;
+
+    private boolean autoConfiguration;
+
+    private int beanCount;
+
+    /* Sum of the self times of the beans declared by the configuration. */
+    private double selfMillis;
+}
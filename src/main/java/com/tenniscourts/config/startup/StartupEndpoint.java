@@ -0,0 +1,19 @@
+package com.tenniscourts.config.startup;
+
+import lombok.AllArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@AllArgsConstructor
+@Endpoint(id = "startup")
+public class StartupEndpoint {
+
+    private final StartupReport startupReport;
+
+    @ReadOperation
+    public StartupReportDTO startup() {
+        return startupReport.getReport();
+    }
+}
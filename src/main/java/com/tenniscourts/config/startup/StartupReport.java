@@ -0,0 +1,129 @@
+package com.tenniscourts.config.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.support.SpringFactoriesLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/* Startup as numbers: how long after the JVM started the application was ready and had served its
+   first request, both also as gauges (startup.ready.time, startup.first-request.time) so they can be
+   tracked release over release, and where the time before ready went, per bean and per configuration
+   class, from BeanStartupTimer. The summary is logged once ready, the full report is at
+   /actuator/startup.
+ */
+@Slf4j
+@Component
+public class StartupReport {
+
+    private final BeanStartupTimer beanStartupTimer;
+
+    private final int top;
+
+    private final Set<String> autoConfigurations;
+
+    private final AtomicLong readyMillis = new AtomicLong(-1);
+
+    private final AtomicLong firstRequestMillis = new AtomicLong(-1);
+
+    public StartupReport(BeanStartupTimer beanStartupTimer, MeterRegistry meterRegistry,
+                         @Value("${startup.report.top:20}") int top) {
+        this.beanStartupTimer = beanStartupTimer;
+        this.top = top;
+        this.autoConfigurations = new HashSet<>(SpringFactoriesLoader.loadFactoryNames(EnableAutoConfiguration.class,
+                StartupReport.class.getClassLoader()));
+
+        TimeGauge.builder("startup.ready.time", readyMillis, TimeUnit.MILLISECONDS, StartupReport::orNaN)
+                .description("Time from JVM start until the application was ready").register(meterRegistry);
+        TimeGauge.builder("startup.first-request.time", firstRequestMillis, TimeUnit.MILLISECONDS, StartupReport::orNaN)
+                .description("Time from JVM start until the first request was served").register(meterRegistry);
+    }
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        readyMillis.compareAndSet(-1, ManagementFactory.getRuntimeMXBean().getUptime());
+        beanStartupTimer.stopRecording();
+
+        StartupReportDTO report = getReport();
+        log.info("Ready {} ms after JVM start, {} beans created. Slowest beans: {}. Slowest configurations: {}.",
+                report.getReadyMillis(), report.getBeanCount(),
+                report.getSlowestBeans().stream().limit(5)
+                        .map(bean -> bean.getName() + " " + bean.getSelfMillis() + " ms").collect(Collectors.joining(", ")),
+                report.getSlowestConfigurations().stream().limit(5)
+                        .map(configuration -> simpleName(configuration.getConfiguration()) + " " + configuration.getSelfMillis() + " ms")
+                        .collect(Collectors.joining(", ")));
+    }
+
+    @EventListener
+    public void onRequestHandled(ServletRequestHandledEvent event) {
+        if (firstRequestMillis.compareAndSet(-1, ManagementFactory.getRuntimeMXBean().getUptime())) {
+            log.info("First request ({} {}) served {} ms after JVM start.", event.getMethod(), event.getRequestUrl(),
+                    firstRequestMillis.get());
+        }
+    }
+
+    public StartupReportDTO getReport() {
+        List<BeanTiming> timings = beanStartupTimer.getTimings();
+
+        Map<String, List<BeanTiming>> byConfiguration = timings.stream()
+                .filter(timing -> timing.getConfiguration() != null)
+                .collect(Collectors.groupingBy(BeanTiming::getConfiguration));
+
+        return StartupReportDTO.builder()
+                .readyMillis(valueOrNull(readyMillis))
+                .firstRequestMillis(valueOrNull(firstRequestMillis))
+                .beanCount(timings.size())
+                .slowestBeans(timings.stream()
+                        .sorted(Comparator.comparingLong(BeanTiming::getSelfNanos).reversed())
+                        .limit(top)
+                        .map(timing -> BeanStartupDTO.builder()
+                                .name(timing.getBeanName())
+                                .type(timing.getBeanClass())
+                                .configuration(timing.getConfiguration())
+                                .totalMillis(millis(timing.getTotalNanos()))
+                                .selfMillis(millis(timing.getSelfNanos())).build())
+                        .collect(Collectors.toList()))
+                .slowestConfigurations(byConfiguration.entrySet().stream()
+                        .map(entry -> ConfigurationStartupDTO.builder()
+                                .configuration(entry.getKey())
+                                .autoConfiguration(autoConfigurations.contains(entry.getKey().replaceAll("\\$.*$", "")))
+                                .beanCount(entry.getValue().size())
+                                .selfMillis(millis(entry.getValue().stream().mapToLong(BeanTiming::getSelfNanos).sum())).build())
+                        .sorted(Comparator.comparingDouble(ConfigurationStartupDTO::getSelfMillis).reversed())
+                        .limit(top)
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private static double orNaN(AtomicLong value) {
+        return value.get() < 0 ? Double.NaN : value.get();
+    }
+
+    private static Long valueOrNull(AtomicLong value) {
+        return value.get() < 0 ? null : value.get();
+    }
+
+    /* Tenths of a millisecond are plenty here. */
+    private static double millis(long nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+}
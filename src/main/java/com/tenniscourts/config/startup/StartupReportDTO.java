@@ -0,0 +1,29 @@
+package com.tenniscourts.config.startup;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StartupReportDTO {
+
+    /* Milliseconds from JVM start until the application was ready to serve. */
+    private Long readyMillis;
+
+    /* Milliseconds from JVM start until the first request had been served; absent until then. */
+    private Long firstRequestMillis;
+
+    private int beanCount;
+
+    private List<BeanStartupDTO> slowestBeans;
+
+    private List<ConfigurationStartupDTO> slowestConfigurations;
+}
@@ -0,0 +1,44 @@
+package com.tenniscourts.config.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+/* For the cdsArchive task: once the application is ready it requests a few endpoints, so the classes
+   the first requests load end up in the class list as well, then shuts the application down.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "startup.training-run.enabled", havingValue = "true")
+public class TrainingRun {
+
+    private final List<String> paths;
+
+    public TrainingRun(@Value("${startup.training-run.paths:/guest/1,/court/1,/schedule/1,/guest/list}") List<String> paths) {
+        this.paths = paths;
+    }
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        RestTemplate restTemplate = new RestTemplate();
+        String port = event.getApplicationContext().getEnvironment().getProperty("local.server.port");
+
+        for (String path : paths) {
+            try {
+                restTemplate.getForEntity("http://localhost:" + port + path, String.class);
+            } catch (RestClientException e) {
+                log.info("Training request to {} failed: {}", path, e.getMessage());
+            }
+        }
+
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
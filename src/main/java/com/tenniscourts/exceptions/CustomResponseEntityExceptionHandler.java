@@ -1,7 +1,10 @@
 package com.tenniscourts.exceptions;
 
+import com.tenniscourts.config.persistence.OptimisticRetryExecutor;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -44,6 +47,24 @@ public class CustomResponseEntityExceptionHandler extends ResponseEntityExceptio
         return new ResponseEntity<>(errorDetails, HttpStatus.UNPROCESSABLE_ENTITY);
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public final ResponseEntity<ErrorDetails> handleConcurrentModification(RuntimeException ex, WebRequest request) {
+        ErrorDetails errorDetails = new ErrorDetails(LocalDateTime.now(), "The resource was modified concurrently, please try again.",
+                request.getDescription(false));
+        return new ResponseEntity<>(errorDetails, HttpStatus.CONFLICT);
+    }
+
+    /* Only a race that outlasted the retries is a conflict; rethrowing leaves any other violation to the
+       default handling, like before the retries existed.
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public final ResponseEntity<ErrorDetails> handleDataIntegrityViolation(DataIntegrityViolationException ex, WebRequest request) {
+        if (!OptimisticRetryExecutor.isLostRace(ex)) {
+            throw ex;
+        }
+        return handleConcurrentModification(ex, request);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public final ResponseEntity<ErrorDetails> handleIllegalArgumentException(IllegalArgumentException ex, WebRequest request) {
         ErrorDetails errorDetails = new ErrorDetails(LocalDateTime.now(), ex.getMessage(),
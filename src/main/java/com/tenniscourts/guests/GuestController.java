@@ -1,12 +1,13 @@
 package com.tenniscourts.guests;
 
 import com.tenniscourts.config.BaseRestController;
+import com.tenniscourts.config.pagination.KeysetPage;
 import lombok.AllArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
-import java.util.Collection;
 
 @AllArgsConstructor
 @RestController
@@ -20,7 +21,10 @@ public class GuestController extends BaseRestController {
     }
 
     @GetMapping("/guest/{guestId}")
-    public ResponseEntity<GuestDTO> getGuest(@PathVariable Long guestId) {
+    public ResponseEntity<GuestDTO> getGuest(@PathVariable Long guestId, WebRequest webRequest) {
+        if (isNotModified(webRequest, guestService.findGuestVersion(guestId))) {
+            return null;
+        }
         return ResponseEntity.ok(guestService.findGuestById(guestId));
     }
 
@@ -30,8 +34,13 @@ public class GuestController extends BaseRestController {
     }
 
     @GetMapping("/guest/list")
-    public ResponseEntity<Collection<GuestDTO>> getGuestList() {
-        return ResponseEntity.ok(guestService.findAllGuests());
+    public ResponseEntity<KeysetPage<GuestDTO>> getGuestList(@RequestParam(required = false) String after,
+                                                             @RequestParam(defaultValue = "100") int limit,
+                                                             WebRequest webRequest) {
+        if (isNotModified(webRequest, guestService.findAllGuestsVersion(after, limit))) {
+            return null;
+        }
+        return ResponseEntity.ok(guestService.findAllGuests(after, limit));
     }
 
     @DeleteMapping("/guest/{guestId}")
@@ -3,6 +3,8 @@ package com.tenniscourts.guests;
 import org.mapstruct.InheritInverseConfiguration;
 import org.mapstruct.Mapper;
 
+import java.util.List;
+
 @Mapper(componentModel = "spring")
 public interface GuestMapper {
     Guest map(GuestDTO source);
@@ -11,4 +13,6 @@ public interface GuestMapper {
     GuestDTO map(Guest source);
 
     Guest map(CreateGuestRequestDTO source);
+
+    List<GuestDTO> map(List<Guest> source);
 }
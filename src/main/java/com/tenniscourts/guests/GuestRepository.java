@@ -1,9 +1,25 @@
 package com.tenniscourts.guests;
 
+import com.tenniscourts.config.persistence.EntityVersion;
+import com.tenniscourts.config.persistence.RowVersion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
 public interface GuestRepository extends JpaRepository<Guest, Long> {
     Optional<Guest> findByName(String name);
+
+    Slice<Guest> findByIdGreaterThanOrderById(Long id, Pageable pageable);
+
+    @Query("select new com.tenniscourts.config.persistence.EntityVersion(count(g), max(g.dateUpdate)) from Guest g where g.id = :id")
+    EntityVersion findVersionById(@Param("id") Long id);
+
+    /* The rows of the page findByIdGreaterThanOrderById would return, for its version. */
+    @Query("select new com.tenniscourts.config.persistence.RowVersion(g.id, g.dateUpdate) from Guest g " +
+            "where g.id > :afterId order by g.id")
+    Slice<RowVersion> findRowVersionsByIdGreaterThan(@Param("afterId") Long afterId, Pageable pageable);
 }
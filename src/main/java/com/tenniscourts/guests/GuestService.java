@@ -1,12 +1,12 @@
 package com.tenniscourts.guests;
 
+import com.tenniscourts.config.pagination.KeysetCursor;
+import com.tenniscourts.config.pagination.KeysetPage;
+import com.tenniscourts.config.persistence.EntityVersion;
 import com.tenniscourts.exceptions.EntityNotFoundException;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.Collection;
-import java.util.stream.Collectors;
-
 @Service
 @AllArgsConstructor
 public class GuestService {
@@ -25,14 +25,27 @@ public class GuestService {
         });
     }
 
+    public EntityVersion findGuestVersion(Long guestId) {
+        EntityVersion entityVersion = guestRepository.findVersionById(guestId);
+        if (entityVersion.isEmpty()) {
+            throw new EntityNotFoundException("Guest not found.");
+        }
+        return entityVersion;
+    }
+
+    public EntityVersion findAllGuestsVersion(String after, int limit) {
+        return EntityVersion.ofPage(guestRepository.findRowVersionsByIdGreaterThan(afterId(after), KeysetPage.limit(limit)));
+    }
+
     public GuestDTO findGuestByName(String guestName) {
         return guestRepository.findByName(guestName).map(guestMapper::map).orElseThrow(() -> {
             throw new EntityNotFoundException("Guest not found.");
         });
     }
 
-    public Collection<GuestDTO> findAllGuests() {
-        return guestRepository.findAll().stream().map(guestMapper::map).collect(Collectors.toList());
+    public KeysetPage<GuestDTO> findAllGuests(String after, int limit) {
+        return KeysetPage.of(guestRepository.findByIdGreaterThanOrderById(afterId(after), KeysetPage.limit(limit)),
+                guestMapper::map, guest -> KeysetCursor.of(guest.getId()));
     }
 
     public GuestDTO deleteGuest(Long guestId) {
@@ -52,4 +65,8 @@ public class GuestService {
             return guestMapper.map(guestRepository.save(guestMapper.map(guestDTO)));
         }
     }
+
+    private static Long afterId(String after) {
+        return after == null ? 0L : KeysetCursor.decode(after).getId();
+    }
 }
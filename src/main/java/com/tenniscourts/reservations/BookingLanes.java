@@ -0,0 +1,89 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.audit.AuditContext;
+import com.tenniscourts.config.metrics.StatementCounter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/* Optional mode that queues booking commands per court. Every court is mapped to one of a fixed number of
+   lanes, and each lane is a single thread, so commands for the same court run one after the other
+   while commands for courts on other lanes run in parallel. Bookings on a busy court then wait their turn
+   here instead of retrying against each other's optimistic locks.
+
+   That's all it does: it's a serializing executor in front of the same optimistic-lock path, and it keeps
+   no state of its own. It isn't the only way into a court's slots either. Batch bookings, adding schedules
+   and the sweeper don't go through it, and a reschedule runs on the new court's lane but frees the slot on
+   the old one. The schedule versions are what keep all of those correct, lanes or not.
+
+   It's off by default (booking.lanes.enabled=false), in which case commands just run on the caller's
+   thread like before.
+ */
+@Component
+public class BookingLanes {
+
+    private final ExecutorService[] lanes;
+
+    public BookingLanes(@Value("${booking.lanes.enabled:false}") boolean enabled,
+                        @Value("${booking.lanes.count:0}") int laneCount) {
+        if (!enabled) {
+            this.lanes = new ExecutorService[0];
+            return;
+        }
+
+        this.lanes = new ExecutorService[laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < lanes.length; i++) {
+            String threadName = "booking-lane-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /* The court id is a supplier so that we don't pay for the lookup when lanes are off. If the court
+       can't be found the command runs on the caller's thread, where it'll fail with the proper not found error.
+     */
+    public <T> T execute(Supplier<Optional<Long>> tennisCourtId, Supplier<T> command) {
+        if (lanes.length == 0) {
+            return command.get();
+        }
+
+        Optional<Long> courtId = tennisCourtId.get();
+        if (!courtId.isPresent()) {
+            return command.get();
+        }
+
+        Supplier<T> auditedCommand = StatementCounter.wrap(AuditContext.wrap(command));
+        Future<T> result = lanes[(int) Math.floorMod(courtId.get(), (long) lanes.length)].submit(auditedCommand::get);
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the booking lane.", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.tenniscourts.reservations;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.*;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+@Data
+public class CreateReservationsRequestDTO {
+
+    @ApiModelProperty(required = true)
+    @NotNull
+    private Long guestId;
+
+    @ApiModelProperty(required = true)
+    @NotEmpty
+    @Size(max = 100)
+    private List<@NotNull Long> scheduleIds;
+
+}
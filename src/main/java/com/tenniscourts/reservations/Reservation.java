@@ -10,16 +10,28 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
-import javax.persistence.OneToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 
 @Entity
-@Table
+@Table(uniqueConstraints = {@UniqueConstraint(name = "uk_reservation_schedule_active_guest",
+        columnNames = {"schedule_id", "active_guest_id"}),
+        @UniqueConstraint(name = "uk_reservation_active_schedule", columnNames = "active_schedule_id")},
+        indexes = {@Index(name = "idx_reservation_status_id", columnList = "reservationStatus, id"),
+                @Index(name = "idx_reservation_schedule_guest", columnList = "schedule_id, guest_id"),
+                @Index(name = "idx_reservation_status_schedule", columnList = "reservationStatus, schedule_id")})
 @Getter
 @Setter
 @AllArgsConstructor
@@ -28,10 +40,10 @@ import java.math.BigDecimal;
 @Builder
 public class Reservation extends BaseEntity<Long> {
 
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Guest guest;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @NotNull
     private Schedule schedule;
 
@@ -42,4 +54,28 @@ public class Reservation extends BaseEntity<Long> {
     private ReservationStatus reservationStatus = ReservationStatus.READY_TO_PLAY;
 
     private BigDecimal refundValue;
+
+    /* Set when the guest turns up; the sweeper tells completed reservations from no-shows by it. */
+    private LocalDateTime checkInDateTime;
+
+    @Version
+    private Long version;
+
+    /* Holds the guest id while the reservation is active and null otherwise, so the unique constraint
+       only stops a guest from holding two active reservations on the same schedule.
+     */
+    @Column(name = "active_guest_id")
+    private Long activeGuestId;
+
+    /* Same for the schedule, so a schedule can only hold one active reservation at a time. */
+    @Column(name = "active_schedule_id")
+    private Long activeScheduleId;
+
+    @PrePersist
+    @PreUpdate
+    private void updateActiveIds() {
+        boolean active = ReservationStatus.READY_TO_PLAY.equals(reservationStatus);
+        this.activeGuestId = active && guest != null ? guest.getId() : null;
+        this.activeScheduleId = active && schedule != null ? schedule.getId() : null;
+    }
 }
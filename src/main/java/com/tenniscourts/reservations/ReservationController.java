@@ -1,46 +1,96 @@
 package com.tenniscourts.reservations;
 
 import com.tenniscourts.config.BaseRestController;
+import com.tenniscourts.config.idempotency.IdempotencyStore;
+import com.tenniscourts.config.pagination.KeysetPage;
 import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 
+import static com.tenniscourts.config.idempotency.IdempotencyStore.IDEMPOTENCY_KEY;
+
 @AllArgsConstructor
 @RestController
+@Lazy(false)
 public class ReservationController extends BaseRestController {
 
     private final ReservationService reservationService;
 
+    private final ReservationHistoryExporter reservationHistoryExporter;
+
+    private final IdempotencyStore idempotencyStore;
+
     @PostMapping("/reservation")
-    public ResponseEntity<Void> bookReservation(@RequestBody @Valid CreateReservationRequestDTO createReservationRequestDTO) {
-        return ResponseEntity.created(locationByEntity(reservationService.bookReservation(createReservationRequestDTO).getId())).build();
+    public ResponseEntity<Void> bookReservation(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                @RequestBody @Valid CreateReservationRequestDTO createReservationRequestDTO) {
+        return idempotencyStore.execute(idempotencyKey, Arrays.asList("book", createReservationRequestDTO), () ->
+                ResponseEntity.created(locationByEntity(reservationService.bookReservation(createReservationRequestDTO).getId())).build());
     }
 
-    //TODO: Multiple reservations? Maybe multiple on a single schedule?
+    @PostMapping("/reservation/batch")
+    public ResponseEntity<List<ReservationDTO>> bookReservations(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                                 @RequestBody @Valid CreateReservationsRequestDTO createReservationsRequestDTO) {
+        return idempotencyStore.execute(idempotencyKey, Arrays.asList("book_batch", createReservationsRequestDTO), () ->
+                ResponseEntity.status(HttpStatus.CREATED).body(reservationService.bookReservations(createReservationsRequestDTO)));
+    }
 
     @GetMapping("/reservation/{reservationId}")
-    public ResponseEntity<ReservationDTO> findReservation(@PathVariable Long reservationId) {
+    public ResponseEntity<ReservationDTO> findReservation(@PathVariable Long reservationId, WebRequest webRequest) {
+        if (isNotModified(webRequest, reservationService.findReservationVersion(reservationId))) {
+            return null;
+        }
         return ResponseEntity.ok(reservationService.findReservation(reservationId));
     }
 
     @GetMapping("/reservation/list/{startDateTime}/{endDateTime}")
-    public ResponseEntity<List<ReservationDTO>> findAllReservations(@PathVariable @DateTimeFormat(pattern="yyyy-MM-dd'T'HH:mm") LocalDateTime startDateTime,
-                                                                    @PathVariable @DateTimeFormat(pattern="yyyy-MM-dd'T'HH:mm") LocalDateTime endDateTime) {
-        return ResponseEntity.ok(reservationService.findAllReservationsBetweenTimes(startDateTime, endDateTime));
+    public ResponseEntity<KeysetPage<ReservationDTO>> findAllReservations(@PathVariable @DateTimeFormat(pattern="yyyy-MM-dd'T'HH:mm") LocalDateTime startDateTime,
+                                                                          @PathVariable @DateTimeFormat(pattern="yyyy-MM-dd'T'HH:mm") LocalDateTime endDateTime,
+                                                                          @RequestParam(required = false) String after,
+                                                                          @RequestParam(defaultValue = "100") int limit,
+                                                                          WebRequest webRequest) {
+        if (isNotModified(webRequest, reservationService.findAllReservationsVersionBetweenTimes(startDateTime, endDateTime, after, limit))) {
+            return null;
+        }
+        return ResponseEntity.ok(reservationService.findAllReservationsBetweenTimes(startDateTime, endDateTime, after, limit));
+    }
+
+    @GetMapping("/reservation/history/export")
+    public ResponseEntity<StreamingResponseBody> exportReservationHistory(@RequestParam @DateTimeFormat(pattern="yyyy-MM-dd'T'HH:mm") LocalDateTime from,
+                                                                          @RequestParam(required = false) @DateTimeFormat(pattern="yyyy-MM-dd'T'HH:mm") LocalDateTime to,
+                                                                          @RequestParam(defaultValue = "ndjson") String format) {
+        ReservationHistoryExporter.Format exportFormat = ReservationHistoryExporter.Format.of(format);
+        return ResponseEntity.ok().contentType(exportFormat.getMediaType())
+                .body(outputStream -> reservationHistoryExporter.export(from, to, exportFormat, outputStream));
     }
 
     @DeleteMapping("/reservation/{reservationId}")
-    public ResponseEntity<ReservationDTO> cancelReservation(@PathVariable Long reservationId) {
-        return ResponseEntity.ok(reservationService.cancelReservation(reservationId));
+    public ResponseEntity<ReservationDTO> cancelReservation(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                            @PathVariable Long reservationId) {
+        return idempotencyStore.execute(idempotencyKey, Arrays.asList("cancel", reservationId), () ->
+                ResponseEntity.ok(reservationService.cancelReservation(reservationId)));
+    }
+
+    @PostMapping("/reservation/{reservationId}/check-in")
+    public ResponseEntity<ReservationDTO> checkInReservation(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                             @PathVariable Long reservationId) {
+        return idempotencyStore.execute(idempotencyKey, Arrays.asList("check_in", reservationId), () ->
+                ResponseEntity.ok(reservationService.checkInReservation(reservationId)));
     }
 
     @PutMapping("/reservation/{reservationId}/{scheduleId}")
-    public ResponseEntity<ReservationDTO> rescheduleReservation(@PathVariable Long reservationId, @PathVariable Long scheduleId) {
-        return ResponseEntity.ok(reservationService.rescheduleReservation(reservationId, scheduleId));
+    public ResponseEntity<ReservationDTO> rescheduleReservation(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                                @PathVariable Long reservationId, @PathVariable Long scheduleId) {
+        return idempotencyStore.execute(idempotencyKey, Arrays.asList("reschedule", reservationId, scheduleId), () ->
+                ResponseEntity.ok(reservationService.rescheduleReservation(reservationId, scheduleId)));
     }
 }
@@ -1,11 +1,13 @@
 package com.tenniscourts.reservations;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
 import com.tenniscourts.schedules.ScheduleDTO;
 import io.swagger.annotations.ApiModelProperty;
 import lombok.*;
 
 import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @AllArgsConstructor
 @NoArgsConstructor
@@ -27,6 +29,9 @@ public class ReservationDTO {
 
     private BigDecimal value;
 
+    @JsonFormat(pattern="yyyy-MM-dd'T'HH:mm")
+    private LocalDateTime checkInDateTime;
+
     @ApiModelProperty(required = true)
     @NotNull
     private Long scheduledId;
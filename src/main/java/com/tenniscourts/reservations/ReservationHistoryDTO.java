@@ -0,0 +1,45 @@
+package com.tenniscourts.reservations;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/* One flat row of the history export, so the NDJSON lines and the CSV columns carry the same fields. */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"reservationId", "scheduleId", "tennisCourtId", "tennisCourtName", "guestId",
+        "startDateTime", "endDateTime", "reservationStatus", "value", "refundValue"})
+public class ReservationHistoryDTO {
+
+    private Long reservationId;
+
+    private Long scheduleId;
+
+    private Long tennisCourtId;
+
+    private String tennisCourtName;
+
+    private Long guestId;
+
+    @JsonFormat(pattern="yyyy-MM-dd'T'HH:mm")
+    private LocalDateTime startDateTime;
+
+    @JsonFormat(pattern="yyyy-MM-dd'T'HH:mm")
+    private LocalDateTime endDateTime;
+
+    private String reservationStatus;
+
+    private BigDecimal value;
+
+    private BigDecimal refundValue;
+}
@@ -0,0 +1,119 @@
+package com.tenniscourts.reservations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/* Writes reservation history straight from a database cursor to the response, one row at a time.
+   Each reservation is detached once it's written, so the persistence context (and the heap) stays
+   the same size however long the period is. Courts are left attached; there's only a handful of them.
+ */
+@Service
+@AllArgsConstructor
+public class ReservationHistoryExporter {
+
+    private static final String CSV_HEADER = "reservationId,scheduleId,tennisCourtId,tennisCourtName,guestId," +
+            "startDateTime,endDateTime,reservationStatus,value,refundValue";
+
+    private final ReservationRepository reservationRepository;
+
+    private final ReservationMapper reservationMapper;
+
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    @Getter
+    @AllArgsConstructor
+    public enum Format {
+        NDJSON(MediaType.parseMediaType("application/x-ndjson")),
+        CSV(MediaType.parseMediaType("text/csv"));
+
+        private final MediaType mediaType;
+
+        public static Format of(String format) {
+            return Arrays.stream(values()).filter(value -> value.name().equalsIgnoreCase(format)).findFirst()
+                    .orElseThrow(() -> {
+                        throw new IllegalArgumentException("Unsupported export format; use ndjson or csv.");
+                    });
+        }
+    }
+
+    /* History only covers what has already happened, so the end of the period is capped at now. */
+    @Transactional(readOnly = true)
+    public void export(LocalDateTime startDateTime, LocalDateTime endDateTime, Format format, OutputStream outputStream) throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+
+        if (Format.CSV.equals(format)) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        try (Stream<Reservation> reservations = reservationRepository.streamAllBetweenTimes(startDateTime,
+                endDateTime == null || endDateTime.isAfter(now) ? now : endDateTime)) {
+            Iterator<Reservation> iterator = reservations.iterator();
+            while (iterator.hasNext()) {
+                Reservation reservation = iterator.next();
+                ReservationHistoryDTO row = reservationMapper.mapHistory(reservation);
+                detach(reservation);
+
+                if (Format.CSV.equals(format)) {
+                    writeCsv(writer, row);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(row));
+                }
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    private void detach(Reservation reservation) {
+        entityManager.detach(reservation);
+        entityManager.detach(reservation.getSchedule());
+        if (reservation.getGuest() != null) {
+            entityManager.detach(reservation.getGuest());
+        }
+    }
+
+    private void writeCsv(Writer writer, ReservationHistoryDTO row) throws IOException {
+        writer.write(String.join(",",
+                csv(row.getReservationId()),
+                csv(row.getScheduleId()),
+                csv(row.getTennisCourtId()),
+                csv(row.getTennisCourtName()),
+                csv(row.getGuestId()),
+                csv(row.getStartDateTime()),
+                csv(row.getEndDateTime()),
+                csv(row.getReservationStatus()),
+                csv(row.getValue()),
+                csv(row.getRefundValue())));
+    }
+
+    private String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+
+        String text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
@@ -19,4 +19,13 @@ public interface ReservationMapper {
     Reservation map(CreateReservationRequestDTO source);
 
     List<ReservationDTO> map(List<Reservation> source);
+
+    @Mapping(target = "reservationId", source = "id")
+    @Mapping(target = "scheduleId", source = "schedule.id")
+    @Mapping(target = "tennisCourtId", source = "schedule.tennisCourt.id")
+    @Mapping(target = "tennisCourtName", source = "schedule.tennisCourt.name")
+    @Mapping(target = "guestId", source = "guest.id")
+    @Mapping(target = "startDateTime", source = "schedule.startDateTime")
+    @Mapping(target = "endDateTime", source = "schedule.endDateTime")
+    ReservationHistoryDTO mapHistory(Reservation source);
 }
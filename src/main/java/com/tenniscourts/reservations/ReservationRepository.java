@@ -1,13 +1,106 @@
 package com.tenniscourts.reservations;
 
+import com.tenniscourts.config.persistence.EntityVersion;
+import com.tenniscourts.config.persistence.RowVersion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
 
+    @Override
+    @EntityGraph(attributePaths = {"schedule", "schedule.tennisCourt"})
+    Optional<Reservation> findById(Long id);
+
     List<Reservation> findBySchedule_Id(Long scheduleId);
 
+    @Query("select r.schedule.id from Reservation r where r.guest.id = :guestId and r.schedule.id in :scheduleIds " +
+            "and r.reservationStatus = :reservationStatus")
+    List<Long> findScheduleIdsByGuestIdAndScheduleIdInAndReservationStatus(@Param("guestId") Long guestId,
+                                                                           @Param("scheduleIds") Collection<Long> scheduleIds,
+                                                                           @Param("reservationStatus") ReservationStatus reservationStatus);
+
+    @Query("select r.schedule.id from Reservation r where r.schedule.id in :scheduleIds and r.reservationStatus = :reservationStatus")
+    List<Long> findScheduleIdsByScheduleIdInAndReservationStatus(@Param("scheduleIds") Collection<Long> scheduleIds,
+                                                                 @Param("reservationStatus") ReservationStatus reservationStatus);
+
+    boolean existsBySchedule_IdAndGuest_IdAndReservationStatus(Long scheduleId, Long guestId, ReservationStatus reservationStatus);
+
+    boolean existsBySchedule_IdAndReservationStatus(Long scheduleId, ReservationStatus reservationStatus);
+
     List<Reservation> findByReservationStatusAndSchedule_StartDateTimeGreaterThanEqualAndSchedule_EndDateTimeLessThanEqual(ReservationStatus reservationStatus, LocalDateTime startDateTime, LocalDateTime endDateTime);
+
+    /* Seeks past the last (schedule startDateTime, id) of the previous page rather than skipping an offset. */
+    @Query("select r from Reservation r join fetch r.schedule s join fetch s.tennisCourt left join fetch r.guest " +
+            "where s.startDateTime >= :startDateTime and s.endDateTime <= :endDateTime " +
+            "and (s.startDateTime > :afterStartDateTime or (s.startDateTime = :afterStartDateTime and r.id > :afterId)) " +
+            "order by s.startDateTime, r.id")
+    Slice<Reservation> findAllBetweenTimesAfter(@Param("startDateTime") LocalDateTime startDateTime,
+                                                @Param("endDateTime") LocalDateTime endDateTime,
+                                                @Param("afterStartDateTime") LocalDateTime afterStartDateTime,
+                                                @Param("afterId") Long afterId,
+                                                Pageable pageable);
+
+    /* For exports. The rows come off the cursor 500 at a time and aren't snapshotted for
+       dirty checking; it has to be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints({@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")})
+    @Query("select r from Reservation r join fetch r.schedule s join fetch s.tennisCourt left join fetch r.guest " +
+            "where s.startDateTime >= :startDateTime and s.endDateTime <= :endDateTime order by s.startDateTime, r.id")
+    Stream<Reservation> streamAllBetweenTimes(@Param("startDateTime") LocalDateTime startDateTime,
+                                              @Param("endDateTime") LocalDateTime endDateTime);
+
+    /* Walks the reservations still in the given status in id order, which the (reservationStatus, id)
+       index serves directly, keeping only the ones whose schedule had ended by endDateTime.
+     */
+    @Query("select r from Reservation r join fetch r.schedule s where r.reservationStatus = :reservationStatus " +
+            "and r.id > :afterId and s.endDateTime <= :endDateTime order by r.id")
+    List<Reservation> findEndedByReservationStatusAfter(@Param("reservationStatus") ReservationStatus reservationStatus,
+                                                        @Param("endDateTime") LocalDateTime endDateTime,
+                                                        @Param("afterId") Long afterId,
+                                                        Pageable pageable);
+
+    /* Schedules starting in [startDateTime, endDateTime), the way a court closure is given. */
+    @Query("select r from Reservation r join fetch r.schedule s where s.tennisCourt.id = :tennisCourtId " +
+            "and s.startDateTime >= :startDateTime and s.startDateTime < :endDateTime and r.reservationStatus = :reservationStatus")
+    List<Reservation> findByTennisCourtIdBetweenTimesAndReservationStatus(@Param("tennisCourtId") Long tennisCourtId,
+                                                                          @Param("startDateTime") LocalDateTime startDateTime,
+                                                                          @Param("endDateTime") LocalDateTime endDateTime,
+                                                                          @Param("reservationStatus") ReservationStatus reservationStatus);
+
+    @Query("select distinct s.startDateTime from Reservation r join r.schedule s " +
+            "where s.tennisCourt.id = :tennisCourtId and r.reservationStatus = :reservationStatus")
+    List<LocalDateTime> findScheduleStartDateTimesByTennisCourtIdAndReservationStatus(@Param("tennisCourtId") Long tennisCourtId,
+                                                                                      @Param("reservationStatus") ReservationStatus reservationStatus);
+
+    @Query("select r.schedule.tennisCourt.id from Reservation r where r.id = :id")
+    Optional<Long> findTennisCourtIdById(@Param("id") Long id);
+
+    @Query("select new com.tenniscourts.config.persistence.EntityVersion(count(r), max(r.dateUpdate), max(s.dateUpdate), max(tc.dateUpdate)) " +
+            "from Reservation r join r.schedule s join s.tennisCourt tc where r.id = :id")
+    EntityVersion findVersionById(@Param("id") Long id);
+
+    /* The rows of the page findAllBetweenTimesAfter would return, for its version. */
+    @Query("select new com.tenniscourts.config.persistence.RowVersion(r.id, r.dateUpdate, s.dateUpdate, tc.dateUpdate) " +
+            "from Reservation r join r.schedule s join s.tennisCourt tc " +
+            "where s.startDateTime >= :startDateTime and s.endDateTime <= :endDateTime " +
+            "and (s.startDateTime > :afterStartDateTime or (s.startDateTime = :afterStartDateTime and r.id > :afterId)) " +
+            "order by s.startDateTime, r.id")
+    Slice<RowVersion> findRowVersionsBetweenTimesAfter(@Param("startDateTime") LocalDateTime startDateTime,
+                                                       @Param("endDateTime") LocalDateTime endDateTime,
+                                                       @Param("afterStartDateTime") LocalDateTime afterStartDateTime,
+                                                       @Param("afterId") Long afterId,
+                                                       Pageable pageable);
 }
@@ -1,19 +1,36 @@
 package com.tenniscourts.reservations;
 
-import com.tenniscourts.config.persistence.BaseEntity;
+import com.tenniscourts.analytics.CourtUsageService;
+import com.tenniscourts.config.metrics.BookingMetrics;
+import com.tenniscourts.config.pagination.KeysetCursor;
+import com.tenniscourts.config.pagination.KeysetPage;
+import com.tenniscourts.config.persistence.EntityVersion;
+import com.tenniscourts.config.persistence.OptimisticRetryExecutor;
+import com.tenniscourts.config.persistence.TransactionCallbacks;
 import com.tenniscourts.exceptions.EntityNotFoundException;
 import com.tenniscourts.guests.Guest;
 import com.tenniscourts.guests.GuestRepository;
 import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleIndex;
 import com.tenniscourts.schedules.ScheduleRepository;
+import com.tenniscourts.waitlist.WaitlistEntry;
+import com.tenniscourts.waitlist.WaitlistService;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,33 +43,111 @@ public class ReservationService {
 
     private final ReservationMapper reservationMapper;
 
+    private final ScheduleIndex scheduleIndex;
+
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
+
+    private final BookingLanes bookingLanes;
+
+    private final CourtUsageService courtUsageService;
+
+    private final WaitlistService waitlistService;
+
+    private final BookingMetrics bookingMetrics;
+
+    private final EntityManager entityManager;
+
     /* This _could_ verify if there was a schedule overlapping for this user with the one they're
        trying to reserve now... but, for now, that is on them if they schedule two at the same time
        and we'll just be keeping their deposit for one.
      */
     public ReservationDTO bookReservation(CreateReservationRequestDTO createReservationRequestDTO) {
+        return bookingMetrics.record("book", () -> bookingLanes.execute(
+                () -> scheduleRepository.findTennisCourtIdById(createReservationRequestDTO.getScheduleId()),
+                () -> optimisticRetryExecutor.execute(() -> book(createReservationRequestDTO))));
+    }
+
+    private ReservationDTO book(CreateReservationRequestDTO createReservationRequestDTO) {
         Guest guest = guestRepository.findById(createReservationRequestDTO.getGuestId()).orElseThrow(() -> {
             throw new EntityNotFoundException("Guest not found.");
         });
-        Schedule schedule = scheduleRepository.findById(createReservationRequestDTO.getScheduleId()).orElseThrow(() -> {
+        Schedule schedule = scheduleRepository.findForBookingById(createReservationRequestDTO.getScheduleId()).orElseThrow(() -> {
             throw new EntityNotFoundException("Schedule not found.");
         });
 
-        Reservation reservation = validateAndBuildReservation(guest, schedule);
+        Reservation reservation = reservationRepository.save(validateAndBuildReservation(guest, schedule));
+        courtUsageService.recordBookings(Collections.singletonList(reservation));
+        TransactionCallbacks.afterCommit(() -> scheduleIndex.markBooked(schedule));
+
+        return reservationMapper.map(reservation);
+    }
 
-        return reservationMapper.map(reservationRepository.save(reservation));
+    /* Books every schedule for the guest or none of them. The lookups are one query per table
+       whatever the number of schedules, and the new rows are inserted as a JDBC batch.
+     */
+    public List<ReservationDTO> bookReservations(CreateReservationsRequestDTO createReservationsRequestDTO) {
+        Set<Long> scheduleIds = new LinkedHashSet<>(createReservationsRequestDTO.getScheduleIds());
+        if (scheduleIds.size() != createReservationsRequestDTO.getScheduleIds().size()) {
+            throw new IllegalArgumentException("The same schedule can't be reserved twice.");
+        }
+
+        return bookingMetrics.record("book_batch",
+                () -> optimisticRetryExecutor.execute(() -> book(createReservationsRequestDTO.getGuestId(), scheduleIds)));
+    }
+
+    private List<ReservationDTO> book(Long guestId, Set<Long> scheduleIds) {
+        Guest guest = guestRepository.findById(guestId).orElseThrow(() -> {
+            throw new EntityNotFoundException("Guest not found.");
+        });
+        Map<Long, Schedule> schedulesById = scheduleRepository.findForBookingByIdIn(scheduleIds).stream()
+                .collect(Collectors.toMap(Schedule::getId, Function.identity()));
+        if (schedulesById.size() != scheduleIds.size()) {
+            throw new EntityNotFoundException("Schedule not found.");
+        }
+        if (!reservationRepository.findScheduleIdsByGuestIdAndScheduleIdInAndReservationStatus(
+                guest.getId(), scheduleIds, ReservationStatus.READY_TO_PLAY).isEmpty()) {
+            throw new IllegalArgumentException("Guest is already reserved on one of these schedules.");
+        }
+        if (!reservationRepository.findScheduleIdsByScheduleIdInAndReservationStatus(scheduleIds, ReservationStatus.READY_TO_PLAY).isEmpty()) {
+            throw new IllegalArgumentException("One of these schedules is already reserved; join its waitlist instead.");
+        }
+
+        List<Reservation> reservations = scheduleIds.stream()
+                .map(scheduleId -> buildReservation(guest, schedulesById.get(scheduleId)))
+                .collect(Collectors.toList());
+
+        List<Reservation> savedReservations = reservationRepository.saveAll(reservations);
+        courtUsageService.recordBookings(savedReservations);
+        TransactionCallbacks.afterCommit(() -> schedulesById.values().forEach(scheduleIndex::markBooked));
+
+        return reservationMapper.map(savedReservations);
     }
 
     private Reservation validateAndBuildReservation(Guest guest, Schedule schedule) {
-        if(reservationRepository.findBySchedule_Id(schedule.getId()).stream()
-                .anyMatch(reservation -> reservation.getGuest().getId().equals(guest.getId()))) {
+        if(reservationRepository.existsBySchedule_IdAndGuest_IdAndReservationStatus(
+                schedule.getId(), guest.getId(), ReservationStatus.READY_TO_PLAY)) {
             throw new IllegalArgumentException("Guest is already reserved on this schedule.");
         }
 
+        /* One guest per schedule: whoever wants a taken one waits for it on its waitlist, and the
+           unique active schedule constraint turns a booking racing this check into a retry.
+         */
+        if(reservationRepository.existsBySchedule_IdAndReservationStatus(schedule.getId(), ReservationStatus.READY_TO_PLAY)) {
+            throw new IllegalArgumentException("The schedule is already reserved; join its waitlist instead.");
+        }
+
+        return buildReservation(guest, schedule);
+    }
+
+    private Reservation buildReservation(Guest guest, Schedule schedule) {
         if(schedule.getStartDateTime().isBefore(LocalDateTime.now())) {
             throw new IllegalArgumentException("Cannot schedule a reservation in the past.");
         }
 
+        if(schedule.isClosed()) {
+            throw new IllegalArgumentException("The court is closed at the time of this schedule.");
+        }
+
         return Reservation.builder().guest(guest).schedule(schedule).reservationStatus(ReservationStatus.READY_TO_PLAY).value(BigDecimal.TEN).build();
     }
 
@@ -62,20 +157,36 @@ public class ReservationService {
         });
     }
 
-    /* I am pretty unhappy with what I had to do here, but am unsure how to generate a list of reservations
-       based on their schedule ids using a repository method.
-     */
-    public List<ReservationDTO> findAllReservationsBetweenTimes(LocalDateTime startDateTime, LocalDateTime endDateTime) {
-        List<Long> scheduleIds = scheduleRepository.findByStartDateTimeGreaterThanEqualAndEndDateTimeLessThanEqual(startDateTime, endDateTime)
-                .stream().map(BaseEntity::getId).collect(Collectors.toList());
+    public EntityVersion findReservationVersion(Long reservationId) {
+        EntityVersion entityVersion = reservationRepository.findVersionById(reservationId);
+        if (entityVersion.isEmpty()) {
+            throw new EntityNotFoundException("Reservation not found.");
+        }
+        return entityVersion;
+    }
+
+    public EntityVersion findAllReservationsVersionBetweenTimes(LocalDateTime startDateTime, LocalDateTime endDateTime, String after, int limit) {
+        KeysetCursor cursor = cursorOf(startDateTime, after);
+
+        return EntityVersion.ofPage(reservationRepository.findRowVersionsBetweenTimesAfter(startDateTime, endDateTime,
+                cursor.requireDateTime(), cursor.getId(), KeysetPage.limit(limit)));
+    }
 
-        return reservationRepository.findAll().stream()
-                .filter(reservation -> scheduleIds.contains(reservation.getSchedule().getId()))
-                .map(reservationMapper::map).collect(Collectors.toList());
+    public KeysetPage<ReservationDTO> findAllReservationsBetweenTimes(LocalDateTime startDateTime, LocalDateTime endDateTime, String after, int limit) {
+        KeysetCursor cursor = cursorOf(startDateTime, after);
+
+        return KeysetPage.of(reservationRepository.findAllBetweenTimesAfter(startDateTime, endDateTime,
+                        cursor.requireDateTime(), cursor.getId(), KeysetPage.limit(limit)),
+                reservationMapper::map, reservation -> KeysetCursor.of(reservation.getSchedule().getStartDateTime(), reservation.getId()));
+    }
+
+    private static KeysetCursor cursorOf(LocalDateTime startDateTime, String after) {
+        return after == null ? KeysetCursor.of(startDateTime, 0L) : KeysetCursor.decode(after);
     }
 
     public ReservationDTO cancelReservation(Long reservationId) {
-        return reservationMapper.map(this.cancel(reservationId));
+        return bookingMetrics.record("cancel", () -> bookingLanes.execute(() -> reservationRepository.findTennisCourtIdById(reservationId),
+                () -> optimisticRetryExecutor.execute(() -> reservationMapper.map(this.cancel(reservationId)))));
     }
 
     private Reservation cancel(Long reservationId) {
@@ -83,18 +194,111 @@ public class ReservationService {
 
             this.validateCancellationOrRescheduling(reservation);
 
-            return reservationRepository.save(
+            Reservation cancelledReservation = reservationRepository.save(
                     this.updateReservation(reservation, ReservationStatus.CANCELLED));
+            courtUsageService.recordCancellation(cancelledReservation);
+            this.releaseSchedule(cancelledReservation.getSchedule());
+
+            return cancelledReservation;
         }).orElseThrow(() -> {
             throw new EntityNotFoundException("Reservation not found.");
         });
     }
 
+    public ReservationDTO checkInReservation(Long reservationId) {
+        return bookingLanes.execute(() -> reservationRepository.findTennisCourtIdById(reservationId),
+                () -> optimisticRetryExecutor.execute(() -> reservationMapper.map(this.checkIn(reservationId))));
+    }
+
+    private Reservation checkIn(Long reservationId) {
+        Reservation reservation = reservationRepository.findById(reservationId).orElseThrow(() -> {
+            throw new EntityNotFoundException("Reservation not found.");
+        });
+
+        if (!ReservationStatus.READY_TO_PLAY.equals(reservation.getReservationStatus())) {
+            throw new IllegalArgumentException("Cannot check in because it's not in ready to play status.");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Schedule schedule = reservation.getSchedule();
+        if (now.isBefore(schedule.getStartDateTime().minusHours(1)) || !now.isBefore(schedule.getEndDateTime())) {
+            throw new IllegalArgumentException("Can check in only from an hour before the start until the end of the reservation.");
+        }
+
+        reservation.setCheckInDateTime(now);
+        return reservationRepository.save(reservation);
+    }
+
+    /* Closes every schedule of the court that starts inside the closure and cancels what was on them, all in
+       one transaction on the court's lane. A closed schedule stays taken in the index, can't be booked or
+       waited for, and its waitlist is cancelled, since nothing will ever free it. The refunds are the usual
+       cancellation tiers, worked out against one clock reading so reservations at the same time always land
+       in the same tier. The schedules are locked like a booking would, so a booking racing the closure retries
+       and finds the schedule closed instead of slipping through, and the changed rows go out as JDBC batches.
+     */
+    public List<ReservationDTO> cancelReservationsForClosure(Long tennisCourtId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        if (!endDateTime.isAfter(startDateTime)) {
+            throw new IllegalArgumentException("The end of the closure must be after its start.");
+        }
+
+        return bookingLanes.execute(() -> Optional.of(tennisCourtId),
+                () -> optimisticRetryExecutor.execute(() -> reservationMapper.map(closeCourt(tennisCourtId, startDateTime, endDateTime))));
+    }
+
+    private List<Reservation> closeCourt(Long tennisCourtId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = startDateTime.isBefore(now) ? now : startDateTime;
+        List<Schedule> schedules = scheduleRepository.findForClosureByTennisCourtIdBetweenTimes(tennisCourtId, from, endDateTime);
+        if (schedules.isEmpty()) {
+            return Collections.emptyList();
+        }
+        schedules.forEach(schedule -> schedule.setClosed(true));
+
+        List<Reservation> reservations = reservationRepository.findByTennisCourtIdBetweenTimesAndReservationStatus(
+                tennisCourtId, from, endDateTime, ReservationStatus.READY_TO_PLAY);
+        reservations.forEach(reservation -> updateReservation(reservation, ReservationStatus.CANCELLED, now));
+        List<Reservation> cancelledReservations = reservationRepository.saveAll(reservations);
+        courtUsageService.recordCancellations(cancelledReservations);
+        waitlistService.cancelWaiting(schedules.stream().map(Schedule::getId).collect(Collectors.toList()));
+        TransactionCallbacks.afterCommit(() -> schedules.forEach(scheduleIndex::markClosed));
+
+        return cancelledReservations;
+    }
+
+    /* A slot left without an active reservation goes to the next guest on its waitlist in the same
+       transaction, and only shows up as free when nobody's waiting. The schedule is locked the way a guest
+       joining its waitlist locks it, so a join racing the release retries instead of being left waiting.
+       It's already managed here, loaded with the reservation, so a locking lookup would just hand back the
+       cached instance without bumping anything; the lock has to be put on that instance itself.
+       The check below also flushes the release, so the promoted reservation is inserted after the released
+       one has stopped holding the schedule.
+     */
+    private void releaseSchedule(Schedule schedule) {
+        entityManager.lock(schedule, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+        if (reservationRepository.existsBySchedule_IdAndReservationStatus(schedule.getId(), ReservationStatus.READY_TO_PLAY)) {
+            return;
+        }
+
+        Optional<WaitlistEntry> nextWaiting = waitlistService.findNextWaiting(schedule);
+        if (nextWaiting.isPresent()) {
+            Reservation promotedReservation = reservationRepository.save(buildReservation(nextWaiting.get().getGuest(), schedule));
+            courtUsageService.recordBookings(Collections.singletonList(promotedReservation));
+            waitlistService.markPromoted(nextWaiting.get(), promotedReservation);
+        } else {
+            TransactionCallbacks.afterCommit(() -> scheduleIndex.markFree(schedule));
+        }
+    }
+
     private Reservation updateReservation(Reservation reservation, ReservationStatus status) {
-        BigDecimal refundValue = getRefundValue(reservation);
+        return updateReservation(reservation, status, LocalDateTime.now());
+    }
+
+    private Reservation updateReservation(Reservation reservation, ReservationStatus status, LocalDateTime now) {
+        BigDecimal refundValue = getRefundValue(reservation, now);
         reservation.setReservationStatus(status);
         reservation.setValue(reservation.getValue().subtract(refundValue));
         reservation.setRefundValue(refundValue);
+        bookingMetrics.recordRefund(refundValue);
 
         return reservation;
     }
@@ -114,7 +318,11 @@ public class ReservationService {
        as that is what the initial implementation implies, and I apologize if that is incorrect.
      */
     public BigDecimal getRefundValue(Reservation reservation) {
-        long minutes = ChronoUnit.MINUTES.between(LocalDateTime.now(), reservation.getSchedule().getStartDateTime());
+        return getRefundValue(reservation, LocalDateTime.now());
+    }
+
+    public BigDecimal getRefundValue(Reservation reservation, LocalDateTime now) {
+        long minutes = ChronoUnit.MINUTES.between(now, reservation.getSchedule().getStartDateTime());
 
         if (minutes >= (24 * 60)) {
             return reservation.getValue();
@@ -129,7 +337,15 @@ public class ReservationService {
         return BigDecimal.ZERO;
     }
 
+    /* Goes on the lane of the court being booked. Releasing the old slot is only an update of the
+       old reservation, which is still covered by its version if another lane touches it.
+     */
     public ReservationDTO rescheduleReservation(Long previousReservationId, Long scheduleId) {
+        return bookingMetrics.record("reschedule", () -> bookingLanes.execute(() -> scheduleRepository.findTennisCourtIdById(scheduleId),
+                () -> optimisticRetryExecutor.execute(() -> reschedule(previousReservationId, scheduleId))));
+    }
+
+    private ReservationDTO reschedule(Long previousReservationId, Long scheduleId) {
         Reservation previousReservation = reservationRepository
                 .findById(previousReservationId).orElseThrow(() -> {
             throw new EntityNotFoundException("Reservation to reschedule not found.");
@@ -139,7 +355,7 @@ public class ReservationService {
             throw new IllegalArgumentException("Cannot reschedule to the same slot.");
         }
 
-        Schedule schedule = scheduleRepository.findById(scheduleId).orElseThrow(() -> {
+        Schedule schedule = scheduleRepository.findForBookingById(scheduleId).orElseThrow(() -> {
             throw new EntityNotFoundException("Schedule not found.");
         });
 
@@ -151,11 +367,14 @@ public class ReservationService {
 
         List<Reservation> reservationList = new ArrayList<>() {{add(previousReservation); add(newReservation);}};
 
-        /* Some implementations of saveAll do all this in one transaction;
-           I'm not sure if its useful here but I'm trying to make this as atomic an operation
-           as possible. It makes the code below far messier though, so maybe its not worth it?
+        /* Both rows are written in the transaction opened by rescheduleReservation, so either
+           both changes commit or neither does.
          */
         List<Reservation> savedReservations = reservationRepository.saveAll(reservationList);
+        courtUsageService.recordReschedule(previousReservation);
+        courtUsageService.recordBookings(Collections.singletonList(newReservation));
+        releaseSchedule(previousReservation.getSchedule());
+        TransactionCallbacks.afterCommit(() -> scheduleIndex.markBooked(schedule));
 
         ReservationDTO newReservationDTO = null;
         ReservationDTO previousReservationDTO = null;
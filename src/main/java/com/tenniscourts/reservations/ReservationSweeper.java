@@ -0,0 +1,147 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.analytics.CourtUsageService;
+import com.tenniscourts.config.persistence.OptimisticRetryExecutor;
+import com.tenniscourts.waitlist.WaitlistEntry;
+import com.tenniscourts.waitlist.WaitlistService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+/* Moves reservations whose match is over out of READY_TO_PLAY, so the status-filtered queries (the
+   schedule index load, the active guest checks) only ever see what's actually still to be played.
+   Guests who checked in are COMPLETED and get their deposit back (story 7); the rest are NO_SHOW and
+   we keep it (story 10). Waitlist entries of schedules that already started are EXPIRED as well: nothing
+   can free those slots for them anymore.
+
+   Each chunk is its own short transaction. There's nothing extra to checkpoint: a swept reservation
+   leaves READY_TO_PLAY, so a restarted or later run picks up exactly what's left. Within a run the
+   cursor only moves forward, so a chunk that lost a race with a late check-in, or with another transaction
+   creating the same usage rollup row, is skipped until the next run rather than retried in a loop.
+
+   Never lazy: @Scheduled only picks up beans that get created.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "reservation.sweeper.enabled", matchIfMissing = true)
+public class ReservationSweeper {
+
+    private final ReservationRepository reservationRepository;
+
+    private final CourtUsageService courtUsageService;
+
+    private final WaitlistService waitlistService;
+
+    private final TransactionOperations transactionOperations;
+
+    private final int chunkSize;
+
+    private final long gracePeriodMinutes;
+
+    public ReservationSweeper(ReservationRepository reservationRepository,
+                              CourtUsageService courtUsageService,
+                              WaitlistService waitlistService,
+                              TransactionOperations transactionOperations,
+                              @Value("${reservation.sweeper.chunk-size:200}") int chunkSize,
+                              @Value("${reservation.sweeper.grace-period-minutes:60}") long gracePeriodMinutes) {
+        this.reservationRepository = reservationRepository;
+        this.courtUsageService = courtUsageService;
+        this.waitlistService = waitlistService;
+        this.transactionOperations = transactionOperations;
+        this.chunkSize = chunkSize;
+        this.gracePeriodMinutes = gracePeriodMinutes;
+    }
+
+    @Scheduled(initialDelayString = "${reservation.sweeper.interval-ms:300000}",
+            fixedDelayString = "${reservation.sweeper.interval-ms:300000}")
+    public int sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime endedBy = now.minusMinutes(gracePeriodMinutes);
+
+        int swept = sweepInChunks("Reservations", checkpoint -> sweepChunk(endedBy, checkpoint));
+        if (swept > 0) {
+            log.info("Swept {} ended reservations.", swept);
+        }
+        int expired = sweepInChunks("Waitlist entries", checkpoint -> expireChunk(now, checkpoint));
+        if (expired > 0) {
+            log.info("Expired {} waitlist entries of started schedules.", expired);
+        }
+        return swept + expired;
+    }
+
+    private int sweepInChunks(String what, ToIntFunction<AtomicLong> chunkSweeper) {
+        AtomicLong checkpoint = new AtomicLong();
+        int swept = 0;
+
+        while (true) {
+            long afterId = checkpoint.get();
+            try {
+                int chunk = transactionOperations.execute(status -> chunkSweeper.applyAsInt(checkpoint));
+                if (chunk == 0) {
+                    break;
+                }
+                swept += chunk;
+            } catch (OptimisticLockingFailureException e) {
+                log.warn("{} after id {} changed while being swept; leaving them for the next run.", what, afterId);
+            } catch (DataIntegrityViolationException e) {
+                if (!OptimisticRetryExecutor.isLostRace(e)) {
+                    throw e;
+                }
+                log.warn("{} after id {} changed while being swept; leaving them for the next run.", what, afterId);
+            }
+
+            if (checkpoint.get() == afterId) {
+                break;
+            }
+        }
+        return swept;
+    }
+
+    private int sweepChunk(LocalDateTime endedBy, AtomicLong checkpoint) {
+        List<Reservation> reservations = reservationRepository.findEndedByReservationStatusAfter(
+                ReservationStatus.READY_TO_PLAY, endedBy, checkpoint.get(), PageRequest.of(0, chunkSize));
+        if (reservations.isEmpty()) {
+            return 0;
+        }
+        checkpoint.set(reservations.get(reservations.size() - 1).getId());
+
+        reservations.forEach(this::complete);
+        reservationRepository.saveAll(reservations);
+        courtUsageService.recordCompletions(reservations);
+        return reservations.size();
+    }
+
+    private int expireChunk(LocalDateTime startedBy, AtomicLong checkpoint) {
+        List<WaitlistEntry> waitlistEntries = waitlistService.expireStarted(startedBy, checkpoint.get(), chunkSize);
+        if (waitlistEntries.isEmpty()) {
+            return 0;
+        }
+        checkpoint.set(waitlistEntries.get(waitlistEntries.size() - 1).getId());
+        return waitlistEntries.size();
+    }
+
+    private void complete(Reservation reservation) {
+        if (reservation.getCheckInDateTime() != null) {
+            reservation.setReservationStatus(ReservationStatus.COMPLETED);
+            reservation.setRefundValue(reservation.getValue());
+            reservation.setValue(BigDecimal.ZERO);
+        } else {
+            reservation.setReservationStatus(ReservationStatus.NO_SHOW);
+            reservation.setRefundValue(BigDecimal.ZERO);
+        }
+    }
+}
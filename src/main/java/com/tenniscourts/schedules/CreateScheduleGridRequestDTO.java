@@ -0,0 +1,51 @@
+package com.tenniscourts.schedules;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateScheduleGridRequestDTO {
+
+    @ApiModelProperty(required = true)
+    @NotNull
+    private Long tennisCourtId;
+
+    @ApiModelProperty(required = true, example = "2021-09-06")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    @NotNull
+    private LocalDate startDate;
+
+    @ApiModelProperty(required = true, example = "2021-09-30")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    @NotNull
+    private LocalDate endDate;
+
+    @ApiModelProperty(required = true, example = "08:00")
+    @JsonFormat(pattern = "HH:mm")
+    @NotNull
+    private LocalTime openingTime;
+
+    @ApiModelProperty(required = true, example = "22:00")
+    @JsonFormat(pattern = "HH:mm")
+    @NotNull
+    private LocalTime closingTime;
+
+    @ApiModelProperty(example = "60")
+    @Min(60)
+    @Builder.Default
+    private int slotLengthInMinutes = 60;
+}
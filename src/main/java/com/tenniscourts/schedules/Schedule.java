@@ -12,16 +12,22 @@ import lombok.Setter;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_schedule_tennis_court_start_date_time",
+        columnNames = {"tennis_court_id", "startDateTime"}),
+        indexes = @Index(name = "idx_schedule_start_date_time", columnList = "startDateTime, id"))
 @Getter
 @Setter
 @Builder
@@ -30,7 +36,7 @@ import java.util.List;
 @EqualsAndHashCode(callSuper = true, exclude = "reservations")
 public class Schedule extends BaseEntity<Long> {
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @NotNull
     private TennisCourt tennisCourt;
 
@@ -42,9 +48,16 @@ public class Schedule extends BaseEntity<Long> {
     @NotNull
     private LocalDateTime endDateTime;
 
-    @OneToMany
+    /* Set when the court is closed at this time; see ReservationService.cancelReservationsForClosure. */
+    @Column
+    private boolean closed;
+
+    @OneToMany(mappedBy = "schedule")
     private List<Reservation> reservations;
 
+    @Version
+    private Long version;
+
     public void addReservation(Reservation reservation) {
         if (this.reservations == null) {
             this.reservations = new ArrayList<>();
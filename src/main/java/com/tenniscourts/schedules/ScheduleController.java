@@ -1,10 +1,15 @@
 package com.tenniscourts.schedules;
 
 import com.tenniscourts.config.BaseRestController;
+import com.tenniscourts.config.pagination.KeysetPage;
 import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 import java.time.LocalDate;
@@ -14,23 +19,42 @@ import java.util.List;
 
 @AllArgsConstructor
 @RestController
+@Lazy(false)
 public class ScheduleController extends BaseRestController {
 
     private final ScheduleService scheduleService;
 
+    private final ScheduleRangeCache scheduleRangeCache;
+
     @PostMapping("/schedule")
     public ResponseEntity<Void> addScheduleTennisCourt(@RequestBody @Valid CreateScheduleRequestDTO createScheduleRequestDTO) {
         return ResponseEntity.created(locationByEntity(scheduleService.addSchedule(createScheduleRequestDTO.getTennisCourtId(), createScheduleRequestDTO).getId())).build();
     }
 
+    @PostMapping("/schedule/bulk")
+    public ResponseEntity<List<ScheduleDTO>> addScheduleGridTennisCourt(@RequestBody @Valid CreateScheduleGridRequestDTO createScheduleGridRequestDTO) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(scheduleService.addScheduleGrid(createScheduleGridRequestDTO));
+    }
+
     @GetMapping("/schedule/{startDate}/{endDate}")
-    public ResponseEntity<List<ScheduleDTO>> findSchedulesByDates(@PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
-                                                                  @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate) {
-        return ResponseEntity.ok(scheduleService.findSchedulesByDates(LocalDateTime.of(startDate, LocalTime.of(0, 0)), LocalDateTime.of(endDate, LocalTime.of(23, 59))));
+    public ResponseEntity<byte[]> findSchedulesByDates(@PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+                                                       @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+                                                       @RequestParam(required = false) String after,
+                                                       @RequestParam(defaultValue = "100") int limit,
+                                                       WebRequest webRequest) {
+        ScheduleRangeCache.Entry entry = scheduleRangeCache.get(startDate, endDate, after, limit,
+                () -> scheduleService.findSchedulesByDates(LocalDateTime.of(startDate, LocalTime.of(0, 0)), LocalDateTime.of(endDate, LocalTime.of(23, 59)), after, limit));
+        if (isNotModified(webRequest, entry.getVersion())) {
+            return null;
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(entry.getBody());
     }
 
     @GetMapping("/schedule/{scheduleId}")
-    public ResponseEntity<ScheduleDTO> findByScheduleId(@PathVariable Long scheduleId) {
+    public ResponseEntity<ScheduleDTO> findByScheduleId(@PathVariable Long scheduleId, WebRequest webRequest) {
+        if (isNotModified(webRequest, scheduleService.findScheduleVersion(scheduleId))) {
+            return null;
+        }
         return ResponseEntity.ok(scheduleService.findSchedule(scheduleId));
     }
 }
@@ -0,0 +1,108 @@
+package com.tenniscourts.schedules;
+
+import com.tenniscourts.reservations.ReservationRepository;
+import com.tenniscourts.reservations.ReservationStatus;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory interval index of the schedules of each tennis court, keyed by start time, together
+ * with an occupancy bitmap holding one bit per hour telling whether the slot starting in that hour
+ * is booked or closed. A court is loaded from the database the first time it is touched and is kept in sync
+ * by {@link ScheduleService} and the reservation service afterwards. Every change also evicts the
+ * day it falls on from the {@link ScheduleRangeCache}.
+ */
+@Component
+@AllArgsConstructor
+public class ScheduleIndex {
+
+    private final ScheduleRepository scheduleRepository;
+
+    private final ReservationRepository reservationRepository;
+
+    private final ScheduleRangeCache scheduleRangeCache;
+
+    private final Map<Long, CourtSlots> slotsByTennisCourt = new ConcurrentHashMap<>();
+
+    /* Schedules of a court never overlap each other, so the only one that can overlap
+       the given interval is the last one starting before it ends.
+     */
+    public boolean overlaps(Long tennisCourtId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        Map.Entry<LocalDateTime, ScheduleSlot> candidate = courtSlots(tennisCourtId).slots.lowerEntry(endDateTime);
+        return candidate != null && candidate.getValue().getEndDateTime().isAfter(startDateTime);
+    }
+
+    public void add(Schedule schedule) {
+        courtSlots(schedule.getTennisCourt().getId()).slots.put(schedule.getStartDateTime(),
+                new ScheduleSlot(schedule.getId(), schedule.getStartDateTime(), schedule.getEndDateTime()));
+        scheduleRangeCache.evict(schedule.getStartDateTime().toLocalDate());
+    }
+
+    public void markBooked(Schedule schedule) {
+        courtSlots(schedule.getTennisCourt().getId()).setOccupied(schedule.getStartDateTime(), true);
+        scheduleRangeCache.evict(schedule.getStartDateTime().toLocalDate());
+    }
+
+    /* A closed slot stays taken for good: nothing frees it again. */
+    public void markClosed(Schedule schedule) {
+        markBooked(schedule);
+    }
+
+    public void markFree(Schedule schedule) {
+        courtSlots(schedule.getTennisCourt().getId()).setOccupied(schedule.getStartDateTime(), false);
+        scheduleRangeCache.evict(schedule.getStartDateTime().toLocalDate());
+    }
+
+    public List<ScheduleSlot> findFreeSlots(Long tennisCourtId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        CourtSlots courtSlots = courtSlots(tennisCourtId);
+        return courtSlots.slots.subMap(startDateTime, true, endDateTime, false).values().stream()
+                .filter(slot -> !slot.getEndDateTime().isAfter(endDateTime))
+                .filter(slot -> !courtSlots.isOccupied(slot.getStartDateTime()))
+                .collect(Collectors.toList());
+    }
+
+    private CourtSlots courtSlots(Long tennisCourtId) {
+        return slotsByTennisCourt.computeIfAbsent(tennisCourtId, id -> {
+            CourtSlots courtSlots = new CourtSlots();
+            scheduleRepository.findSlotsByTennisCourtId(id).forEach(slot -> courtSlots.slots.put(slot.getStartDateTime(), slot));
+            reservationRepository.findScheduleStartDateTimesByTennisCourtIdAndReservationStatus(id, ReservationStatus.READY_TO_PLAY)
+                    .forEach(startDateTime -> courtSlots.setOccupied(startDateTime, true));
+            scheduleRepository.findClosedStartDateTimesByTennisCourtId(id)
+                    .forEach(startDateTime -> courtSlots.setOccupied(startDateTime, true));
+            return courtSlots;
+        });
+    }
+
+    private static class CourtSlots {
+
+        private final NavigableMap<LocalDateTime, ScheduleSlot> slots = new ConcurrentSkipListMap<>();
+
+        /* Slots last at least an hour and can't overlap, so no two of them start in the same hour
+           and 24 bits per day are enough to tell which ones are taken.
+         */
+        private final Map<LocalDate, Integer> occupiedHoursByDay = new ConcurrentHashMap<>();
+
+        private void setOccupied(LocalDateTime startDateTime, boolean occupied) {
+            int hourBit = 1 << startDateTime.getHour();
+            occupiedHoursByDay.compute(startDateTime.toLocalDate(), (day, occupiedHours) -> {
+                int hours = occupiedHours == null ? 0 : occupiedHours;
+                hours = occupied ? hours | hourBit : hours & ~hourBit;
+                return hours == 0 ? null : hours;
+            });
+        }
+
+        private boolean isOccupied(LocalDateTime startDateTime) {
+            Integer occupiedHours = occupiedHoursByDay.get(startDateTime.toLocalDate());
+            return occupiedHours != null && (occupiedHours & (1 << startDateTime.getHour())) != 0;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.tenniscourts.schedules;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tenniscourts.config.pagination.KeysetPage;
+import com.tenniscourts.config.persistence.EntityVersion;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/* Holds the serialized responses of GET /schedule/{startDate}/{endDate}, so a week that's polled over
+   and over is queried, mapped and written to JSON once until something on one of its days changes.
+   ScheduleIndex evicts a day whenever a schedule is added to it or one of its slots is booked or freed,
+   and only the windows covering that day go.
+
+   Identical requests that miss at the same time wait on the same load instead of each running it.
+
+   Each entry carries its own version for conditional GETs: a hash of the bytes as the ETag and the time it
+   was loaded as Last-Modified, which is safe because any change to the window evicts the entry.
+
+   Only the instance that took the write evicts, though, so entries also go after the TTL: that's how long
+   another node can keep serving (and 304ing) a window that changed through this one. Past max-entries the
+   oldest go first. The queue holds the slots themselves, so a window that was evicted and loaded again
+   isn't thrown out by the place in line its previous load left behind.
+ */
+@Component
+public class ScheduleRangeCache {
+
+    private final ObjectMapper objectMapper;
+
+    private final int maxEntries;
+
+    private final long ttlNanos;
+
+    private final Map<Key, Slot> entries = new ConcurrentHashMap<>();
+
+    private final Queue<Slot> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    public ScheduleRangeCache(ObjectMapper objectMapper,
+                              @Value("${schedule.range-cache.max-entries:1000}") int maxEntries,
+                              @Value("${schedule.range-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.objectMapper = objectMapper;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    public Entry get(LocalDate startDate, LocalDate endDate, String after, int limit, Supplier<KeysetPage<ScheduleDTO>> loader) {
+        Key key = new Key(startDate, endDate, after, KeysetPage.limit(limit).getPageSize());
+
+        Slot created = new Slot(key, System.nanoTime(), new CompletableFuture<>());
+        Slot existing = entries.compute(key, (k, slot) -> slot == null || slot.isExpired(ttlNanos) ? created : slot);
+        if (existing != created) {
+            return join(existing.getEntry());
+        }
+
+        insertionOrder.add(created);
+        evictOldest();
+
+        try {
+            byte[] body = serialize(loader.get());
+            created.getEntry().complete(new Entry(body, new EntityVersion(DigestUtils.md5DigestAsHex(body), LocalDateTime.now().withNano(0))));
+        } catch (RuntimeException | Error e) {
+            // Failures aren't cached; whoever was waiting gets the same error and the next request retries.
+            entries.remove(key, created);
+            created.getEntry().completeExceptionally(e);
+            throw e;
+        }
+        return created.getEntry().join();
+    }
+
+    /* A load still running for an evicted window finishes for whoever is already waiting on it,
+       but it's out of the map, so the next request goes back to the database.
+     */
+    public void evict(LocalDate day) {
+        entries.keySet().removeIf(key -> !day.isBefore(key.getStartDate()) && !day.isAfter(key.getEndDate()));
+    }
+
+    public void clear() {
+        entries.clear();
+        insertionOrder.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /* Every entry is kept for the same TTL, so the expired ones are at the head of the queue. A slot that's
+       no longer the one in the map (evicted by day, failed or reloaded) just loses its place in line.
+     */
+    private void evictOldest() {
+        Slot oldest;
+        while ((oldest = insertionOrder.peek()) != null) {
+            boolean stale = entries.get(oldest.getKey()) != oldest;
+            if (!stale && !oldest.isExpired(ttlNanos) && entries.size() <= maxEntries) {
+                break;
+            }
+            insertionOrder.poll();
+            if (!stale) {
+                entries.remove(oldest.getKey(), oldest);
+            }
+        }
+    }
+
+    private byte[] serialize(KeysetPage<ScheduleDTO> page) {
+        try {
+            return objectMapper.writeValueAsBytes(page);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize schedules.", e);
+        }
+    }
+
+    private static Entry join(CompletableFuture<Entry> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        private final byte[] body;
+        private final EntityVersion version;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Slot {
+        private final Key key;
+        private final long createdNanos;
+        private final CompletableFuture<Entry> entry;
+
+        private boolean isExpired(long ttlNanos) {
+            return System.nanoTime() - createdNanos >= ttlNanos;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class Key {
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final String after;
+        private final int limit;
+    }
+}
@@ -1,13 +1,85 @@
 package com.tenniscourts.schedules;
 
+import com.tenniscourts.config.persistence.EntityVersion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
 
+    /* The court is lazy, but every schedule we hand back gets mapped with its court, so the
+       lookups that feed the mapper fetch it in the same select.
+     */
+    @Override
+    @EntityGraph(attributePaths = "tennisCourt")
+    Optional<Schedule> findById(Long id);
+
+    /* Booking bumps the schedule version, so two transactions booking the same schedule
+       can't both commit. No fetch plan on these: Hibernate would try to force the lock on the
+       court as well, and courts aren't versioned. The courts come through batch fetching instead.
+     */
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    Optional<Schedule> findForBookingById(Long id);
+
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    List<Schedule> findForBookingByIdIn(Collection<Long> ids);
+
+    /* The schedules of a court starting in [startDateTime, endDateTime), locked like a booking would. */
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select s from Schedule s where s.tennisCourt.id = :tennisCourtId " +
+            "and s.startDateTime >= :startDateTime and s.startDateTime < :endDateTime")
+    List<Schedule> findForClosureByTennisCourtIdBetweenTimes(@Param("tennisCourtId") Long tennisCourtId,
+                                                             @Param("startDateTime") LocalDateTime startDateTime,
+                                                             @Param("endDateTime") LocalDateTime endDateTime);
+
+    @EntityGraph(attributePaths = "tennisCourt")
     List<Schedule> findByTennisCourt_IdOrderByStartDateTime(Long id);
 
-    List<Schedule> findByStartDateTimeGreaterThanEqualAndEndDateTimeLessThanEqual(LocalDateTime startDateTime, LocalDateTime endDateTime);
-}
\ No newline at end of file
+    /* Seeks past the last (startDateTime, id) of the previous page rather than skipping an offset. */
+    @EntityGraph(attributePaths = "tennisCourt")
+    @Query("select s from Schedule s where s.startDateTime >= :startDateTime and s.endDateTime <= :endDateTime " +
+            "and (s.startDateTime > :afterStartDateTime or (s.startDateTime = :afterStartDateTime and s.id > :afterId)) " +
+            "order by s.startDateTime, s.id")
+    Slice<Schedule> findBetweenTimesAfter(@Param("startDateTime") LocalDateTime startDateTime,
+                                          @Param("endDateTime") LocalDateTime endDateTime,
+                                          @Param("afterStartDateTime") LocalDateTime afterStartDateTime,
+                                          @Param("afterId") Long afterId,
+                                          Pageable pageable);
+
+    @Query("select new com.tenniscourts.schedules.ScheduleSlot(s.id, s.startDateTime, s.endDateTime) " +
+            "from Schedule s where s.tennisCourt.id = :tennisCourtId")
+    List<ScheduleSlot> findSlotsByTennisCourtId(@Param("tennisCourtId") Long tennisCourtId);
+
+    @Query("select s.startDateTime from Schedule s where s.tennisCourt.id = :tennisCourtId and s.closed = true")
+    List<LocalDateTime> findClosedStartDateTimesByTennisCourtId(@Param("tennisCourtId") Long tennisCourtId);
+
+    /* The schedules of a court overlapping [startDateTime, endDateTime). */
+    @Query("select new com.tenniscourts.schedules.ScheduleSlot(s.id, s.startDateTime, s.endDateTime) " +
+            "from Schedule s where s.tennisCourt.id = :tennisCourtId and s.startDateTime < :endDateTime " +
+            "and s.endDateTime > :startDateTime")
+    List<ScheduleSlot> findSlotsByTennisCourtIdOverlapping(@Param("tennisCourtId") Long tennisCourtId,
+                                                           @Param("startDateTime") LocalDateTime startDateTime,
+                                                           @Param("endDateTime") LocalDateTime endDateTime);
+
+    @Query("select s.tennisCourt.id from Schedule s where s.id = :id")
+    Optional<Long> findTennisCourtIdById(@Param("id") Long id);
+
+    @Query("select new com.tenniscourts.config.persistence.EntityVersion(count(s), max(s.dateUpdate), max(tc.dateUpdate)) " +
+            "from Schedule s join s.tennisCourt tc where s.id = :id")
+    EntityVersion findVersionById(@Param("id") Long id);
+
+    /* Counts the court itself when it has no schedules, so an empty count still means no such court. */
+    @Query("select new com.tenniscourts.config.persistence.EntityVersion(count(tc), max(tc.dateUpdate), max(s.dateUpdate)) " +
+            "from TennisCourt tc left join Schedule s on s.tennisCourt = tc where tc.id = :tennisCourtId")
+    EntityVersion findVersionByTennisCourtId(@Param("tennisCourtId") Long tennisCourtId);
+}
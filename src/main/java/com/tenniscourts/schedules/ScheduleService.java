@@ -1,61 +1,182 @@
 package com.tenniscourts.schedules;
 
+import com.tenniscourts.analytics.CourtUsageService;
+import com.tenniscourts.config.metrics.BookingMetrics;
+import com.tenniscourts.config.pagination.KeysetCursor;
+import com.tenniscourts.config.pagination.KeysetPage;
+import com.tenniscourts.config.persistence.EntityVersion;
+import com.tenniscourts.config.persistence.OptimisticRetryExecutor;
+import com.tenniscourts.config.persistence.TransactionCallbacks;
 import com.tenniscourts.exceptions.EntityNotFoundException;
 import com.tenniscourts.tenniscourts.TennisCourt;
 import com.tenniscourts.tenniscourts.TennisCourtRepository;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
 public class ScheduleService {
 
+    private static final int MAX_GRID_SIZE = 20000;
+
+    private static final String OVERLAP_MESSAGE = "Schedule overlaps an existing schedule; please schedule " +
+            "at a different time or on a different court.";
+
     private final ScheduleRepository scheduleRepository;
     private final TennisCourtRepository tennisCourtRepository;
 
     private final ScheduleMapper scheduleMapper;
 
+    private final ScheduleIndex scheduleIndex;
+
+    private final CourtUsageService courtUsageService;
+
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
+
+    private final BookingMetrics bookingMetrics;
+
     public ScheduleDTO addSchedule(Long tennisCourtId, CreateScheduleRequestDTO createScheduleRequestDTO) {
+        return bookingMetrics.record("add_schedule",
+                () -> optimisticRetryExecutor.execute(() -> add(tennisCourtId, createScheduleRequestDTO)));
+    }
+
+    private ScheduleDTO add(Long tennisCourtId, CreateScheduleRequestDTO createScheduleRequestDTO) {
         LocalDateTime endDateTime = createScheduleRequestDTO.getStartDateTime().plusHours(1);
 
         validateScheduleOverlap(tennisCourtId, createScheduleRequestDTO.getStartDateTime(), endDateTime);
 
-        /* Is this better off using TennisCourtService? We'd have to make the service return a non-DTO,
-           include a mapper, or rework the Schedule object to only use ids...
-         */
-        TennisCourt tennisCourt = tennisCourtRepository.findById(tennisCourtId).orElseThrow(() -> {
-            throw new EntityNotFoundException("Tennis court not found.");
-        });
-
         Schedule schedule = Schedule.builder()
-                .tennisCourt(tennisCourt)
                 .startDateTime(createScheduleRequestDTO.getStartDateTime())
-                .endDateTime(createScheduleRequestDTO.getStartDateTime().plusHours(1))
+                .endDateTime(endDateTime)
                 .build();
+        schedule.setTennisCourt(lockTennisCourtForSchedules(tennisCourtId, Collections.singletonList(schedule)));
+
+        Schedule savedSchedule = scheduleRepository.saveAndFlush(schedule);
+        courtUsageService.recordSchedules(Collections.singletonList(savedSchedule));
+        TransactionCallbacks.afterCommit(() -> scheduleIndex.add(savedSchedule));
 
-        return scheduleMapper.map(scheduleRepository.saveAndFlush(schedule));
+        return scheduleMapper.map(savedSchedule);
     }
 
-    private void validateScheduleOverlap(Long tennisCourtId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
-        if(startDateTime.isBefore(LocalDateTime.now())) {
-            throw new IllegalArgumentException("Schedules must be made in the future.");
+    /* Builds the whole grid and checks it against the index before touching the database, then against
+       the table with one query, and saves it in one transaction so the inserts go out as JDBC batches.
+     */
+    public List<ScheduleDTO> addScheduleGrid(CreateScheduleGridRequestDTO createScheduleGridRequestDTO) {
+        Long tennisCourtId = createScheduleGridRequestDTO.getTennisCourtId();
+        return optimisticRetryExecutor.execute(() -> addGrid(tennisCourtId, buildScheduleGrid(createScheduleGridRequestDTO)));
+    }
+
+    private List<ScheduleDTO> addGrid(Long tennisCourtId, List<Schedule> schedules) {
+        for (Schedule schedule : schedules) {
+            validateScheduleOverlap(tennisCourtId, schedule.getStartDateTime(), schedule.getEndDateTime());
+        }
+
+        TennisCourt tennisCourt = lockTennisCourtForSchedules(tennisCourtId, schedules);
+        schedules.forEach(schedule -> schedule.setTennisCourt(tennisCourt));
+
+        List<Schedule> savedSchedules = scheduleRepository.saveAll(schedules);
+        courtUsageService.recordSchedules(savedSchedules);
+        TransactionCallbacks.afterCommit(() -> savedSchedules.forEach(scheduleIndex::add));
+
+        return scheduleMapper.map(savedSchedules);
+    }
+
+    private List<Schedule> buildScheduleGrid(CreateScheduleGridRequestDTO createScheduleGridRequestDTO) {
+        LocalDate startDate = createScheduleGridRequestDTO.getStartDate();
+        LocalDate endDate = createScheduleGridRequestDTO.getEndDate();
+        LocalTime openingTime = createScheduleGridRequestDTO.getOpeningTime();
+        LocalTime closingTime = createScheduleGridRequestDTO.getClosingTime();
+        Duration slotLength = Duration.ofMinutes(createScheduleGridRequestDTO.getSlotLengthInMinutes());
+
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("The end date must not be before the start date.");
+        }
+        if (!closingTime.isAfter(openingTime)) {
+            throw new IllegalArgumentException("The closing time must be after the opening time.");
+        }
+
+        long slotsPerDay = Duration.between(openingTime, closingTime).toMinutes() / slotLength.toMinutes();
+        if (slotsPerDay == 0) {
+            throw new IllegalArgumentException("The opening hours must fit at least one slot.");
+        }
+        if (slotsPerDay * (ChronoUnit.DAYS.between(startDate, endDate) + 1) > MAX_GRID_SIZE) {
+            throw new IllegalArgumentException("A grid can't have more than " + MAX_GRID_SIZE + " schedules.");
         }
 
-        List<ScheduleDTO> scheduleDTOS = findSchedulesByTennisCourtId(tennisCourtId);
-        if(scheduleDTOS.stream().anyMatch(scheduleDTO ->
-                scheduleDTO.getStartDateTime().isBefore(endDateTime)
-                        && scheduleDTO.getEndDateTime().isAfter(startDateTime))) {
-            throw new IllegalArgumentException("Schedule overlaps an existing schedule; please schedule " +
-                    "at a different time or on a different court.");
+        List<Schedule> schedules = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            LocalDateTime closingDateTime = date.atTime(closingTime);
+            for (LocalDateTime startDateTime = date.atTime(openingTime);
+                 !startDateTime.plus(slotLength).isAfter(closingDateTime);
+                 startDateTime = startDateTime.plus(slotLength)) {
+                schedules.add(Schedule.builder()
+                        .startDateTime(startDateTime)
+                        .endDateTime(startDateTime.plus(slotLength))
+                        .build());
+            }
         }
+        return schedules;
     }
 
-    public List<ScheduleDTO> findSchedulesByDates(LocalDateTime startDate, LocalDateTime endDate) {
-        return scheduleMapper.map(
-                scheduleRepository.findByStartDateTimeGreaterThanEqualAndEndDateTimeLessThanEqual(startDate, endDate));
+    /* The index only knows what this node has committed, so it can only turn a schedule down early. The check
+       that counts is against the table, with the court row locked so that schedules for the same court are
+       added one at a time, whichever node they come through; the unique (court, start) constraint backs it up.
+       The schedules are in start order.
+
+       Is this better off using TennisCourtService? We'd have to make the service return a non-DTO,
+       include a mapper, or rework the Schedule object to only use ids...
+     */
+    private TennisCourt lockTennisCourtForSchedules(Long tennisCourtId, List<Schedule> schedules) {
+        TennisCourt tennisCourt = tennisCourtRepository.findForSchedulingById(tennisCourtId).orElseThrow(() -> {
+            throw new EntityNotFoundException("Tennis court not found.");
+        });
+
+        NavigableMap<LocalDateTime, ScheduleSlot> existingSlots = new TreeMap<>();
+        scheduleRepository.findSlotsByTennisCourtIdOverlapping(tennisCourtId, schedules.get(0).getStartDateTime(),
+                schedules.get(schedules.size() - 1).getEndDateTime())
+                .forEach(slot -> existingSlots.put(slot.getStartDateTime(), slot));
+
+        for (Schedule schedule : schedules) {
+            Map.Entry<LocalDateTime, ScheduleSlot> candidate = existingSlots.lowerEntry(schedule.getEndDateTime());
+            if (candidate != null && candidate.getValue().getEndDateTime().isAfter(schedule.getStartDateTime())) {
+                throw new IllegalArgumentException(OVERLAP_MESSAGE);
+            }
+        }
+        return tennisCourt;
+    }
+
+    /* Package-private so the overlap benchmark can call it directly. */
+    void validateScheduleOverlap(Long tennisCourtId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        bookingMetrics.record("overlap_check", () -> {
+            if(startDateTime.isBefore(LocalDateTime.now())) {
+                throw new IllegalArgumentException("Schedules must be made in the future.");
+            }
+
+            if(scheduleIndex.overlaps(tennisCourtId, startDateTime, endDateTime)) {
+                throw new IllegalArgumentException(OVERLAP_MESSAGE);
+            }
+        });
+    }
+
+    public KeysetPage<ScheduleDTO> findSchedulesByDates(LocalDateTime startDate, LocalDateTime endDate, String after, int limit) {
+        KeysetCursor cursor = after == null ? KeysetCursor.of(startDate, 0L) : KeysetCursor.decode(after);
+
+        return KeysetPage.of(scheduleRepository.findBetweenTimesAfter(startDate, endDate,
+                        cursor.requireDateTime(), cursor.getId(), KeysetPage.limit(limit)),
+                scheduleMapper::map, schedule -> KeysetCursor.of(schedule.getStartDateTime(), schedule.getId()));
     }
 
     public ScheduleDTO findSchedule(Long scheduleId) {
@@ -64,7 +185,40 @@ public class ScheduleService {
         });
     }
 
+    public EntityVersion findScheduleVersion(Long scheduleId) {
+        EntityVersion entityVersion = scheduleRepository.findVersionById(scheduleId);
+        if (entityVersion.isEmpty()) {
+            throw new EntityNotFoundException("Schedule not found.");
+        }
+        return entityVersion;
+    }
+
+    public EntityVersion findSchedulesVersionByTennisCourtId(Long tennisCourtId) {
+        EntityVersion entityVersion = scheduleRepository.findVersionByTennisCourtId(tennisCourtId);
+        if (entityVersion.isEmpty()) {
+            throw new EntityNotFoundException("Tennis Court not found.");
+        }
+        return entityVersion;
+    }
+
     public List<ScheduleDTO> findSchedulesByTennisCourtId(Long tennisCourtId) {
         return scheduleMapper.map(scheduleRepository.findByTennisCourt_IdOrderByStartDateTime(tennisCourtId));
     }
+
+    public List<ScheduleDTO> findFreeSchedulesByTennisCourtId(Long tennisCourtId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        if (endDateTime.isBefore(startDateTime)) {
+            throw new IllegalArgumentException("The end of the period must not be before its start.");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        return scheduleIndex.findFreeSlots(tennisCourtId, startDateTime.isBefore(now) ? now : startDateTime, endDateTime)
+                .stream()
+                .map(slot -> ScheduleDTO.builder()
+                        .id(slot.getId())
+                        .tennisCourtId(tennisCourtId)
+                        .startDateTime(slot.getStartDateTime())
+                        .endDateTime(slot.getEndDateTime())
+                        .build())
+                .collect(Collectors.toList());
+    }
 }
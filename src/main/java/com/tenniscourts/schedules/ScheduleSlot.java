@@ -0,0 +1,22 @@
+package com.tenniscourts.schedules;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lightweight view of a {@link Schedule} holding only what the in-memory indexes need.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class ScheduleSlot {
+
+    private final Long id;
+
+    private final LocalDateTime startDateTime;
+
+    private final LocalDateTime endDateTime;
+}
@@ -1,14 +1,22 @@
 package com.tenniscourts.tenniscourts;
 
 import com.tenniscourts.config.BaseRestController;
+import com.tenniscourts.reservations.ReservationDTO;
+import com.tenniscourts.schedules.ScheduleDTO;
 import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
+import java.time.LocalDateTime;
+import java.util.List;
 
 @AllArgsConstructor
 @RestController
+@Lazy(false)
 public class TennisCourtController extends BaseRestController {
 
     private final TennisCourtService tennisCourtService;
@@ -19,12 +27,32 @@ public class TennisCourtController extends BaseRestController {
     }
 
     @GetMapping("/court/{tennisCourtId}")
-    public ResponseEntity<TennisCourtDTO> findTennisCourtById(@PathVariable Long tennisCourtId) {
+    public ResponseEntity<TennisCourtDTO> findTennisCourtById(@PathVariable Long tennisCourtId, WebRequest webRequest) {
+        if (isNotModified(webRequest, tennisCourtService.findTennisCourtVersion(tennisCourtId))) {
+            return null;
+        }
         return ResponseEntity.ok(tennisCourtService.findTennisCourtById(tennisCourtId));
     }
 
     @GetMapping("/court/schedule/{tennisCourtId}")
-    public ResponseEntity<TennisCourtDTO> findTennisCourtWithSchedulesById(@PathVariable Long tennisCourtId) {
+    public ResponseEntity<TennisCourtDTO> findTennisCourtWithSchedulesById(@PathVariable Long tennisCourtId, WebRequest webRequest) {
+        if (isNotModified(webRequest, tennisCourtService.findTennisCourtWithSchedulesVersion(tennisCourtId))) {
+            return null;
+        }
         return ResponseEntity.ok(tennisCourtService.findTennisCourtWithSchedulesById(tennisCourtId));
     }
+
+    @PostMapping("/court/{tennisCourtId}/closure")
+    public ResponseEntity<List<ReservationDTO>> closeTennisCourt(@PathVariable Long tennisCourtId,
+                                                                 @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd'T'HH:mm") LocalDateTime from,
+                                                                 @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd'T'HH:mm") LocalDateTime to) {
+        return ResponseEntity.ok(tennisCourtService.closeTennisCourt(tennisCourtId, from, to));
+    }
+
+    @GetMapping("/court/{tennisCourtId}/availability")
+    public ResponseEntity<List<ScheduleDTO>> findTennisCourtAvailability(@PathVariable Long tennisCourtId,
+                                                                         @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd'T'HH:mm") LocalDateTime from,
+                                                                         @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd'T'HH:mm") LocalDateTime to) {
+        return ResponseEntity.ok(tennisCourtService.findTennisCourtAvailability(tennisCourtId, from, to));
+    }
 }
@@ -1,6 +1,20 @@
 package com.tenniscourts.tenniscourts;
 
+import com.tenniscourts.config.persistence.EntityVersion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
 
 public interface TennisCourtRepository extends JpaRepository<TennisCourt, Long> {
+
+    /* Holds the court row until the transaction ends, so schedules are added to a court one at a time. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<TennisCourt> findForSchedulingById(Long id);
+
+    @Query("select new com.tenniscourts.config.persistence.EntityVersion(count(tc), max(tc.dateUpdate)) from TennisCourt tc where tc.id = :id")
+    EntityVersion findVersionById(@Param("id") Long id);
 }
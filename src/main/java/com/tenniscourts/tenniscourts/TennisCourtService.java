@@ -1,10 +1,17 @@
 package com.tenniscourts.tenniscourts;
 
+import com.tenniscourts.config.persistence.EntityVersion;
 import com.tenniscourts.exceptions.EntityNotFoundException;
+import com.tenniscourts.reservations.ReservationDTO;
+import com.tenniscourts.reservations.ReservationService;
+import com.tenniscourts.schedules.ScheduleDTO;
 import com.tenniscourts.schedules.ScheduleService;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Service
 @AllArgsConstructor
 public class TennisCourtService {
@@ -15,6 +22,8 @@ public class TennisCourtService {
 
     private final TennisCourtMapper tennisCourtMapper;
 
+    private final ReservationService reservationService;
+
     public TennisCourtDTO addTennisCourt(CreateTennisCourtRequestDTO tennisCourt) {
         return tennisCourtMapper.map(tennisCourtRepository.saveAndFlush(tennisCourtMapper.map(tennisCourt)));
     }
@@ -25,9 +34,36 @@ public class TennisCourtService {
         });
     }
 
+    public EntityVersion findTennisCourtVersion(Long tennisCourtId) {
+        EntityVersion entityVersion = tennisCourtRepository.findVersionById(tennisCourtId);
+        if (entityVersion.isEmpty()) {
+            throw new EntityNotFoundException("Tennis Court not found.");
+        }
+        return entityVersion;
+    }
+
+    public EntityVersion findTennisCourtWithSchedulesVersion(Long tennisCourtId) {
+        return scheduleService.findSchedulesVersionByTennisCourtId(tennisCourtId);
+    }
+
     public TennisCourtDTO findTennisCourtWithSchedulesById(Long tennisCourtId) {
         TennisCourtDTO tennisCourtDTO = findTennisCourtById(tennisCourtId);
         tennisCourtDTO.setTennisCourtSchedules(scheduleService.findSchedulesByTennisCourtId(tennisCourtId));
         return tennisCourtDTO;
     }
+
+    public List<ReservationDTO> closeTennisCourt(Long tennisCourtId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        tennisCourtRepository.findById(tennisCourtId).orElseThrow(() -> {
+            throw new EntityNotFoundException("Tennis Court not found.");
+        });
+        return reservationService.cancelReservationsForClosure(tennisCourtId, startDateTime, endDateTime);
+    }
+
+    /* The court is looked up first: the index loads and keeps the slots of whatever court it's asked about. */
+    public List<ScheduleDTO> findTennisCourtAvailability(Long tennisCourtId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        tennisCourtRepository.findById(tennisCourtId).orElseThrow(() -> {
+            throw new EntityNotFoundException("Tennis Court not found.");
+        });
+        return scheduleService.findFreeSchedulesByTennisCourtId(tennisCourtId, startDateTime, endDateTime);
+    }
 }
@@ -0,0 +1,24 @@
+package com.tenniscourts.waitlist;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.*;
+
+import javax.validation.constraints.NotNull;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+@Data
+public class CreateWaitlistEntryRequestDTO {
+
+    @ApiModelProperty(required = true)
+    @NotNull
+    private Long guestId;
+
+    @ApiModelProperty(required = true)
+    @NotNull
+    private Long scheduleId;
+
+}
@@ -0,0 +1,28 @@
+package com.tenniscourts.waitlist;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lightweight view of a waiting {@link WaitlistEntry} holding only what the in-memory {@link Waitlist} needs.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class Waiter {
+
+    private final Long id;
+
+    private final Long scheduleId;
+
+    private final LocalDateTime joinedDateTime;
+
+    public static Waiter of(WaitlistEntry waitlistEntry) {
+        return new Waiter(waitlistEntry.getId(), waitlistEntry.getSchedule().getId(), waitlistEntry.getJoinedDateTime());
+    }
+}
@@ -0,0 +1,75 @@
+package com.tenniscourts.waitlist;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory waitlists of the schedules that have someone waiting, each ordered by the time the guests
+ * joined, so a guest asking for their entry gets their position without counting rows. All the waiting
+ * entries are loaded the first time it's used and it's kept in sync after commit by {@link WaitlistService}
+ * and the reservation service afterwards, but only for what goes through this instance. It's a hint: the
+ * table stays the source of truth, and promoting the next waiter reads it from there.
+ */
+@Component
+@RequiredArgsConstructor
+public class Waitlist {
+
+    private static final Comparator<Waiter> PRIORITY = Comparator.comparing(Waiter::getJoinedDateTime).thenComparing(Waiter::getId);
+
+    private final WaitlistEntryRepository waitlistEntryRepository;
+
+    private volatile Map<Long, NavigableSet<Waiter>> waitersBySchedule;
+
+    public List<Waiter> findWaiters(Long scheduleId) {
+        NavigableSet<Waiter> waiters = waitersBySchedule().get(scheduleId);
+        return waiters == null ? Collections.emptyList() : new ArrayList<>(waiters);
+    }
+
+    /* 1 for the next in line, or 0 if the entry isn't waiting. */
+    public int position(Waiter waiter) {
+        NavigableSet<Waiter> waiters = waitersBySchedule().get(waiter.getScheduleId());
+        return waiters == null || !waiters.contains(waiter) ? 0 : waiters.headSet(waiter).size() + 1;
+    }
+
+    public void add(Waiter waiter) {
+        waitersBySchedule().compute(waiter.getScheduleId(), (scheduleId, waiters) -> {
+            NavigableSet<Waiter> scheduleWaiters = waiters == null ? new ConcurrentSkipListSet<>(PRIORITY) : waiters;
+            scheduleWaiters.add(waiter);
+            return scheduleWaiters;
+        });
+    }
+
+    /* Schedules nobody is waiting for are dropped, so the map only grows with the actual waitlists. */
+    public void remove(Waiter waiter) {
+        waitersBySchedule().computeIfPresent(waiter.getScheduleId(), (scheduleId, waiters) -> {
+            waiters.remove(waiter);
+            return waiters.isEmpty() ? null : waiters;
+        });
+    }
+
+    private Map<Long, NavigableSet<Waiter>> waitersBySchedule() {
+        Map<Long, NavigableSet<Waiter>> waiters = waitersBySchedule;
+        if (waiters == null) {
+            synchronized (this) {
+                waiters = waitersBySchedule;
+                if (waiters == null) {
+                    waiters = new ConcurrentHashMap<>();
+                    for (Waiter waiter : waitlistEntryRepository.findWaitersByWaitlistStatus(WaitlistStatus.WAITING)) {
+                        waiters.computeIfAbsent(waiter.getScheduleId(), scheduleId -> new ConcurrentSkipListSet<>(PRIORITY)).add(waiter);
+                    }
+                    waitersBySchedule = waiters;
+                }
+            }
+        }
+        return waiters;
+    }
+}
@@ -0,0 +1,30 @@
+package com.tenniscourts.waitlist;
+
+import com.tenniscourts.config.BaseRestController;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+
+@AllArgsConstructor
+@RestController
+public class WaitlistController extends BaseRestController {
+
+    private final WaitlistService waitlistService;
+
+    @PostMapping("/waitlist")
+    public ResponseEntity<Void> joinWaitlist(@RequestBody @Valid CreateWaitlistEntryRequestDTO createWaitlistEntryRequestDTO) {
+        return ResponseEntity.created(locationByEntity(waitlistService.joinWaitlist(createWaitlistEntryRequestDTO).getId())).build();
+    }
+
+    @GetMapping("/waitlist/{waitlistEntryId}")
+    public ResponseEntity<WaitlistEntryDTO> findWaitlistEntry(@PathVariable Long waitlistEntryId) {
+        return ResponseEntity.ok(waitlistService.findWaitlistEntry(waitlistEntryId));
+    }
+
+    @DeleteMapping("/waitlist/{waitlistEntryId}")
+    public ResponseEntity<WaitlistEntryDTO> withdrawWaitlistEntry(@PathVariable Long waitlistEntryId) {
+        return ResponseEntity.ok(waitlistService.withdrawWaitlistEntry(waitlistEntryId));
+    }
+}
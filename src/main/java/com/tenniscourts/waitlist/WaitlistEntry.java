@@ -0,0 +1,73 @@
+package com.tenniscourts.waitlist;
+
+import com.tenniscourts.config.persistence.BaseEntity;
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.reservations.Reservation;
+import com.tenniscourts.schedules.Schedule;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+/* A guest waiting for a taken schedule. When the schedule frees up, the waiter who joined first gets
+   a reservation on it and the entry points at that reservation.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_waitlist_entry_schedule_active_guest",
+        columnNames = {"schedule_id", "active_guest_id"}))
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@Builder
+public class WaitlistEntry extends BaseEntity<Long> {
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @NotNull
+    private Guest guest;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @NotNull
+    private Schedule schedule;
+
+    @NotNull
+    @Builder.Default
+    private WaitlistStatus waitlistStatus = WaitlistStatus.WAITING;
+
+    @NotNull
+    private LocalDateTime joinedDateTime;
+
+    /* The reservation the entry was promoted to. */
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Reservation reservation;
+
+    @Version
+    private Long version;
+
+    /* Same trick as on Reservation: the guest id while waiting and null afterwards, so a guest can only
+       be waiting once per schedule but can join again after being promoted or withdrawing.
+     */
+    @Column(name = "active_guest_id")
+    private Long activeGuestId;
+
+    @PrePersist
+    @PreUpdate
+    private void updateActiveGuestId() {
+        this.activeGuestId = WaitlistStatus.WAITING.equals(waitlistStatus) && guest != null ? guest.getId() : null;
+    }
+}
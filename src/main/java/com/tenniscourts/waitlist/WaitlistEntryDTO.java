@@ -0,0 +1,32 @@
+package com.tenniscourts.waitlist;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+@Data
+public class WaitlistEntryDTO {
+
+    private Long id;
+
+    private Long guestId;
+
+    private Long scheduleId;
+
+    private String waitlistStatus;
+
+    @JsonFormat(pattern="yyyy-MM-dd'T'HH:mm")
+    private LocalDateTime joinedDateTime;
+
+    /* Set once the entry has been promoted. */
+    private Long reservationId;
+
+    /* Place in the line while waiting, 1 being next. */
+    private Integer position;
+}
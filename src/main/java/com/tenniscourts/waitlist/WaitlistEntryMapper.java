@@ -0,0 +1,14 @@
+package com.tenniscourts.waitlist;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface WaitlistEntryMapper {
+
+    @Mapping(target = "guestId", source = "guest.id")
+    @Mapping(target = "scheduleId", source = "schedule.id")
+    @Mapping(target = "reservationId", source = "reservation.id")
+    @Mapping(target = "position", ignore = true)
+    WaitlistEntryDTO map(WaitlistEntry source);
+}
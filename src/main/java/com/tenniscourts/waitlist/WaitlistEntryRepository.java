@@ -0,0 +1,37 @@
+package com.tenniscourts.waitlist;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Long> {
+
+    /* The next in line, in the same order as the in-memory Waitlist. */
+    @EntityGraph(attributePaths = {"guest", "schedule"})
+    Optional<WaitlistEntry> findFirstBySchedule_IdAndWaitlistStatusOrderByJoinedDateTimeAscIdAsc(Long scheduleId, WaitlistStatus waitlistStatus);
+
+    List<WaitlistEntry> findBySchedule_IdInAndWaitlistStatus(Collection<Long> scheduleIds, WaitlistStatus waitlistStatus);
+
+    @Query("select e from WaitlistEntry e join e.schedule s where e.waitlistStatus = :waitlistStatus " +
+            "and e.id > :afterId and s.startDateTime <= :startDateTime order by e.id")
+    List<WaitlistEntry> findStartedByWaitlistStatusAfter(@Param("waitlistStatus") WaitlistStatus waitlistStatus,
+                                                         @Param("startDateTime") LocalDateTime startDateTime,
+                                                         @Param("afterId") Long afterId,
+                                                         Pageable pageable);
+
+    boolean existsBySchedule_IdAndGuest_IdAndWaitlistStatus(Long scheduleId, Long guestId, WaitlistStatus waitlistStatus);
+
+    @Query("select new com.tenniscourts.waitlist.Waiter(e.id, e.schedule.id, e.joinedDateTime) " +
+            "from WaitlistEntry e where e.waitlistStatus = :waitlistStatus")
+    List<Waiter> findWaitersByWaitlistStatus(@Param("waitlistStatus") WaitlistStatus waitlistStatus);
+
+    @Query("select e.schedule.tennisCourt.id from WaitlistEntry e where e.id = :id")
+    Optional<Long> findTennisCourtIdById(@Param("id") Long id);
+}
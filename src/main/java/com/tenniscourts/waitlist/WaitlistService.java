@@ -0,0 +1,162 @@
+package com.tenniscourts.waitlist;
+
+import com.tenniscourts.config.persistence.OptimisticRetryExecutor;
+import com.tenniscourts.config.persistence.TransactionCallbacks;
+import com.tenniscourts.exceptions.EntityNotFoundException;
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
+import com.tenniscourts.reservations.BookingLanes;
+import com.tenniscourts.reservations.Reservation;
+import com.tenniscourts.reservations.ReservationRepository;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Service
+@AllArgsConstructor
+public class WaitlistService {
+
+    private final WaitlistEntryRepository waitlistEntryRepository;
+    private final GuestRepository guestRepository;
+    private final ScheduleRepository scheduleRepository;
+    private final ReservationRepository reservationRepository;
+
+    private final WaitlistEntryMapper waitlistEntryMapper;
+
+    private final Waitlist waitlist;
+
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
+
+    private final BookingLanes bookingLanes;
+
+    /* Only taken schedules have a waitlist; a free one should just be booked. The schedule is locked like a
+       booking would, so joining and the cancellation freeing the slot can't both miss each other.
+     */
+    public WaitlistEntryDTO joinWaitlist(CreateWaitlistEntryRequestDTO createWaitlistEntryRequestDTO) {
+        return bookingLanes.execute(() -> scheduleRepository.findTennisCourtIdById(createWaitlistEntryRequestDTO.getScheduleId()),
+                () -> optimisticRetryExecutor.execute(() -> join(createWaitlistEntryRequestDTO)));
+    }
+
+    private WaitlistEntryDTO join(CreateWaitlistEntryRequestDTO createWaitlistEntryRequestDTO) {
+        Guest guest = guestRepository.findById(createWaitlistEntryRequestDTO.getGuestId()).orElseThrow(() -> {
+            throw new EntityNotFoundException("Guest not found.");
+        });
+        Schedule schedule = scheduleRepository.findForBookingById(createWaitlistEntryRequestDTO.getScheduleId()).orElseThrow(() -> {
+            throw new EntityNotFoundException("Schedule not found.");
+        });
+
+        LocalDateTime now = LocalDateTime.now();
+        if (schedule.getStartDateTime().isBefore(now)) {
+            throw new IllegalArgumentException("Cannot join the waitlist of a schedule in the past.");
+        }
+        if (schedule.isClosed()) {
+            throw new IllegalArgumentException("The court is closed at the time of this schedule.");
+        }
+        if (!reservationRepository.existsBySchedule_IdAndReservationStatus(schedule.getId(), ReservationStatus.READY_TO_PLAY)) {
+            throw new IllegalArgumentException("The schedule is free, book it instead.");
+        }
+        if (reservationRepository.existsBySchedule_IdAndGuest_IdAndReservationStatus(schedule.getId(), guest.getId(), ReservationStatus.READY_TO_PLAY)) {
+            throw new IllegalArgumentException("Guest is already reserved on this schedule.");
+        }
+        if (waitlistEntryRepository.existsBySchedule_IdAndGuest_IdAndWaitlistStatus(schedule.getId(), guest.getId(), WaitlistStatus.WAITING)) {
+            throw new IllegalArgumentException("Guest is already on the waitlist of this schedule.");
+        }
+
+        WaitlistEntry waitlistEntry = waitlistEntryRepository.save(WaitlistEntry.builder().guest(guest).schedule(schedule)
+                .waitlistStatus(WaitlistStatus.WAITING).joinedDateTime(now).build());
+        Waiter waiter = Waiter.of(waitlistEntry);
+        TransactionCallbacks.afterCommit(() -> waitlist.add(waiter));
+
+        return waitlistEntryMapper.map(waitlistEntry);
+    }
+
+    public WaitlistEntryDTO findWaitlistEntry(Long waitlistEntryId) {
+        return waitlistEntryRepository.findById(waitlistEntryId).map(waitlistEntry -> {
+            WaitlistEntryDTO waitlistEntryDTO = waitlistEntryMapper.map(waitlistEntry);
+            if (WaitlistStatus.WAITING.equals(waitlistEntry.getWaitlistStatus())) {
+                waitlistEntryDTO.setPosition(waitlist.position(Waiter.of(waitlistEntry)));
+            }
+            return waitlistEntryDTO;
+        }).orElseThrow(() -> {
+            throw new EntityNotFoundException("Waitlist entry not found.");
+        });
+    }
+
+    public WaitlistEntryDTO withdrawWaitlistEntry(Long waitlistEntryId) {
+        return bookingLanes.execute(() -> waitlistEntryRepository.findTennisCourtIdById(waitlistEntryId),
+                () -> optimisticRetryExecutor.execute(() -> waitlistEntryMapper.map(withdraw(waitlistEntryId))));
+    }
+
+    private WaitlistEntry withdraw(Long waitlistEntryId) {
+        WaitlistEntry waitlistEntry = waitlistEntryRepository.findById(waitlistEntryId).orElseThrow(() -> {
+            throw new EntityNotFoundException("Waitlist entry not found.");
+        });
+
+        if (!WaitlistStatus.WAITING.equals(waitlistEntry.getWaitlistStatus())) {
+            throw new IllegalArgumentException("Cannot withdraw because it's not waiting anymore.");
+        }
+
+        waitlistEntry.setWaitlistStatus(WaitlistStatus.WITHDRAWN);
+        WaitlistEntry withdrawnEntry = waitlistEntryRepository.save(waitlistEntry);
+        Waiter waiter = Waiter.of(withdrawnEntry);
+        TransactionCallbacks.afterCommit(() -> waitlist.remove(waiter));
+
+        return withdrawnEntry;
+    }
+
+    /* Called from inside the transaction freeing the schedule, which has it locked. The table is asked rather
+       than the in-memory Waitlist: that one only hears about the entries that went through this instance, and a
+       guest who joined through another one must not be skipped and have the slot show up as free under them.
+     */
+    public Optional<WaitlistEntry> findNextWaiting(Schedule schedule) {
+        return waitlistEntryRepository.findFirstBySchedule_IdAndWaitlistStatusOrderByJoinedDateTimeAscIdAsc(
+                schedule.getId(), WaitlistStatus.WAITING);
+    }
+
+    /* Called from inside the transaction closing the schedules: what the entries were waiting for is gone. */
+    public void cancelWaiting(Collection<Long> scheduleIds) {
+        List<WaitlistEntry> waitlistEntries = waitlistEntryRepository.findBySchedule_IdInAndWaitlistStatus(scheduleIds, WaitlistStatus.WAITING);
+        if (waitlistEntries.isEmpty()) {
+            return;
+        }
+
+        waitlistEntries.forEach(waitlistEntry -> waitlistEntry.setWaitlistStatus(WaitlistStatus.CANCELLED));
+        waitlistEntryRepository.saveAll(waitlistEntries);
+        List<Waiter> waiters = waitlistEntries.stream().map(Waiter::of).collect(Collectors.toList());
+        TransactionCallbacks.afterCommit(() -> waiters.forEach(waitlist::remove));
+    }
+
+    /* Called from inside one of the sweeper's chunk transactions. A schedule that already started can't be
+       freed for anyone anymore, so its entries would otherwise sit WAITING (and in memory) forever.
+     */
+    public List<WaitlistEntry> expireStarted(LocalDateTime startedBy, Long afterId, int limit) {
+        List<WaitlistEntry> waitlistEntries = waitlistEntryRepository.findStartedByWaitlistStatusAfter(
+                WaitlistStatus.WAITING, startedBy, afterId, PageRequest.of(0, limit));
+        if (waitlistEntries.isEmpty()) {
+            return waitlistEntries;
+        }
+
+        waitlistEntries.forEach(waitlistEntry -> waitlistEntry.setWaitlistStatus(WaitlistStatus.EXPIRED));
+        waitlistEntryRepository.saveAll(waitlistEntries);
+        List<Waiter> waiters = waitlistEntries.stream().map(Waiter::of).collect(Collectors.toList());
+        TransactionCallbacks.afterCommit(() -> waiters.forEach(waitlist::remove));
+        return waitlistEntries;
+    }
+
+    public void markPromoted(WaitlistEntry waitlistEntry, Reservation reservation) {
+        waitlistEntry.setWaitlistStatus(WaitlistStatus.PROMOTED);
+        waitlistEntry.setReservation(reservation);
+        waitlistEntryRepository.save(waitlistEntry);
+        Waiter waiter = Waiter.of(waitlistEntry);
+        TransactionCallbacks.afterCommit(() -> waitlist.remove(waiter));
+    }
+}
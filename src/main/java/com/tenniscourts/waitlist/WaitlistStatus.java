@@ -0,0 +1,9 @@
+package com.tenniscourts.waitlist;
+
+public enum WaitlistStatus {
+  WAITING,
+  PROMOTED,
+  WITHDRAWN,
+  CANCELLED,
+  EXPIRED
+}
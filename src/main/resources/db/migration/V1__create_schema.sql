@@ -0,0 +1,126 @@
+create sequence guest_seq start with 1 increment by 50;
+create sequence tennis_court_seq start with 1 increment by 50;
+create sequence schedule_seq start with 1 increment by 50;
+create sequence reservation_seq start with 1 increment by 50;
+create sequence waitlist_entry_seq start with 1 increment by 50;
+create sequence court_daily_usage_seq start with 1 increment by 50;
+create sequence audit_log_entry_seq start with 1 increment by 50;
+
+create table guest (
+    id bigint not null,
+    date_create timestamp,
+    date_update timestamp,
+    ip_number_create varchar(255),
+    ip_number_update varchar(255),
+    user_create bigint,
+    user_update bigint,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+create table tennis_court (
+    id bigint not null,
+    date_create timestamp,
+    date_update timestamp,
+    ip_number_create varchar(255),
+    ip_number_update varchar(255),
+    user_create bigint,
+    user_update bigint,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+create table schedule (
+    id bigint not null,
+    date_create timestamp,
+    date_update timestamp,
+    ip_number_create varchar(255),
+    ip_number_update varchar(255),
+    user_create bigint,
+    user_update bigint,
+    start_date_time timestamp not null,
+    end_date_time timestamp not null,
+    version bigint,
+    tennis_court_id bigint not null,
+    primary key (id),
+    constraint fk_schedule_tennis_court foreign key (tennis_court_id) references tennis_court (id)
+);
+
+create index idx_schedule_start_date_time on schedule (start_date_time, id);
+
+create table reservation (
+    id bigint not null,
+    date_create timestamp,
+    date_update timestamp,
+    ip_number_create varchar(255),
+    ip_number_update varchar(255),
+    user_create bigint,
+    user_update bigint,
+    reservation_status integer not null,
+    value decimal(19,2) not null,
+    refund_value decimal(19,2),
+    check_in_date_time timestamp,
+    active_guest_id bigint,
+    version bigint,
+    guest_id bigint,
+    schedule_id bigint not null,
+    primary key (id),
+    constraint uk_reservation_schedule_active_guest unique (schedule_id, active_guest_id),
+    constraint fk_reservation_guest foreign key (guest_id) references guest (id),
+    constraint fk_reservation_schedule foreign key (schedule_id) references schedule (id)
+);
+
+create index idx_reservation_status_id on reservation (reservation_status, id);
+
+create table waitlist_entry (
+    id bigint not null,
+    date_create timestamp,
+    date_update timestamp,
+    ip_number_create varchar(255),
+    ip_number_update varchar(255),
+    user_create bigint,
+    user_update bigint,
+    waitlist_status integer not null,
+    joined_date_time timestamp not null,
+    active_guest_id bigint,
+    version bigint,
+    guest_id bigint not null,
+    schedule_id bigint not null,
+    reservation_id bigint,
+    primary key (id),
+    constraint uk_waitlist_entry_schedule_active_guest unique (schedule_id, active_guest_id),
+    constraint fk_waitlist_entry_guest foreign key (guest_id) references guest (id),
+    constraint fk_waitlist_entry_schedule foreign key (schedule_id) references schedule (id),
+    constraint fk_waitlist_entry_reservation foreign key (reservation_id) references reservation (id)
+);
+
+create table court_daily_usage (
+    id bigint not null,
+    date_create timestamp,
+    date_update timestamp,
+    ip_number_create varchar(255),
+    ip_number_update varchar(255),
+    user_create bigint,
+    user_update bigint,
+    tennis_court_id bigint not null,
+    usage_day date not null,
+    schedules bigint,
+    reservations bigint,
+    cancellations bigint,
+    reschedules bigint,
+    retained_deposits decimal(19,2) not null,
+    primary key (id),
+    constraint uk_court_daily_usage_court_day unique (tennis_court_id, usage_day)
+);
+
+create table audit_log_entry (
+    id bigint not null,
+    date_create timestamp,
+    action varchar(255),
+    entity_name varchar(255),
+    entity_id varchar(255),
+    user_id bigint,
+    ip_address varchar(255),
+    changes clob,
+    primary key (id)
+);
@@ -0,0 +1,11 @@
+-- Per-court lookups: the court's schedules in start order, its slots for the overlap index, and the
+-- booked start times and reservations within a window of one court.
+create index idx_schedule_tennis_court_start_date_time on schedule (tennis_court_id, start_date_time);
+
+-- Reservations of a schedule, and whether a given guest already holds one on it.
+create index idx_reservation_schedule_guest on reservation (schedule_id, guest_id);
+
+-- Reservations in a status joined to their schedules, e.g. the ready-to-play ones of a court or window.
+create index idx_reservation_status_schedule on reservation (reservation_status, schedule_id);
+
+create index idx_guest_name on guest (name);
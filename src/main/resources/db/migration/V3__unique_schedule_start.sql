@@ -0,0 +1,6 @@
+-- A court can't have two schedules starting at the same time. Overlaps in general are checked with the
+-- court row locked (see ScheduleService); this is what the database itself guarantees on top of that,
+-- and it serves the per-court lookups the index below used to.
+drop index idx_schedule_tennis_court_start_date_time;
+
+alter table schedule add constraint uk_schedule_tennis_court_start_date_time unique (tennis_court_id, start_date_time);
@@ -0,0 +1,3 @@
+-- Schedules inside a court closure stay closed: they can't be booked or waited for, and aren't offered
+-- as available.
+alter table schedule add column closed boolean default false not null;
@@ -0,0 +1,7 @@
+-- A schedule holds at most one active reservation. active_schedule_id is the schedule id while the
+-- reservation is ready to play (status 0) and null otherwise, the same way active_guest_id works.
+alter table reservation add column active_schedule_id bigint;
+
+update reservation set active_schedule_id = schedule_id where reservation_status = 0;
+
+alter table reservation add constraint uk_reservation_active_schedule unique (active_schedule_id);
@@ -0,0 +1,14 @@
+insert into guest(id, name) values(1, 'Roger Federer');
+insert into guest(id, name) values(2, 'Rafael Nadal');
+alter sequence guest_seq restart with 3;
+
+insert into tennis_court(id, name) values(1, 'Roland Garros - Court Philippe-Chatrier');
+alter sequence tennis_court_seq restart with 2;
+
+insert
+    into
+        schedule
+        (id, start_date_time, end_date_time, tennis_court_id, version)
+    values
+        (1, '2020-12-20T20:00:00.0', '2020-02-20T21:00:00.0', 1, 0);
+alter sequence schedule_seq restart with 2;
@@ -0,0 +1,306 @@
+package com.tenniscourts;
+
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
+import com.tenniscourts.reservations.Reservation;
+import com.tenniscourts.reservations.ReservationRepository;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleRangeCache;
+import com.tenniscourts.schedules.ScheduleRepository;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import com.tenniscourts.tenniscourts.TennisCourtRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/* Each endpoint should cost the same number of statements whatever the number of rows it returns,
+   so this seeds a few courts, schedules and reservations and counts what every request prepares.
+   Courts and guests come out of the second-level cache once loaded, so those cost nothing. Endpoints
+   answering conditional GETs look up the version first, which is the only statement on a 304.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SpringBootTest
+@AutoConfigureMockMvc
+@RunWith(SpringRunner.class)
+public class ListEndpointsStatementCountTest {
+
+    private static final LocalDate DAY = LocalDate.now().plusYears(1);
+    private static final int COURTS = 3;
+    private static final int SCHEDULES_PER_COURT = 4;
+
+    private static TennisCourt firstCourt;
+    private static Schedule firstSchedule;
+    private static Reservation firstReservation;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    GuestRepository guestRepository;
+
+    @Autowired
+    TennisCourtRepository tennisCourtRepository;
+
+    @Autowired
+    ScheduleRepository scheduleRepository;
+
+    @Autowired
+    ReservationRepository reservationRepository;
+
+    @Autowired
+    ScheduleRangeCache scheduleRangeCache;
+
+    Statistics statistics;
+
+    @Before
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        if (firstCourt != null) {
+            return;
+        }
+
+        for (int c = 0; c < COURTS; c++) {
+            TennisCourt tennisCourt = new TennisCourt();
+            tennisCourt.setName("Court " + c);
+            tennisCourt = tennisCourtRepository.save(tennisCourt);
+
+            for (int s = 0; s < SCHEDULES_PER_COURT; s++) {
+                LocalDateTime startDateTime = DAY.atTime(8 + s, 0);
+                Schedule schedule = scheduleRepository.save(Schedule.builder().tennisCourt(tennisCourt)
+                        .startDateTime(startDateTime).endDateTime(startDateTime.plusHours(1)).build());
+                Guest guest = guestRepository.save(Guest.builder().name("Guest " + c + "-" + s).build());
+                Reservation reservation = reservationRepository.save(Reservation.builder().guest(guest).schedule(schedule)
+                        .reservationStatus(ReservationStatus.READY_TO_PLAY).value(BigDecimal.TEN).build());
+
+                if (firstCourt == null) {
+                    firstCourt = tennisCourt;
+                    firstSchedule = schedule;
+                    firstReservation = reservation;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void findAllReservationsTwoStatements() throws Exception {
+        statistics.clear();
+
+        mockMvc.perform(get("/reservation/list/{start}/{end}", DAY + "T00:00", DAY + "T23:59"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.content.length()").value(COURTS * SCHEDULES_PER_COURT))
+                .andExpect(jsonPath("$.content[0].schedule.tennisCourt.name").exists());
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void findReservationTwoStatements() throws Exception {
+        statistics.clear();
+
+        mockMvc.perform(get("/reservation/{id}", firstReservation.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(jsonPath("$.schedule.tennisCourt.name").value(firstCourt.getName()));
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void findReservationNotModifiedOneStatement() throws Exception {
+        String eTag = mockMvc.perform(get("/reservation/{id}", firstReservation.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        statistics.clear();
+
+        mockMvc.perform(get("/reservation/{id}", firstReservation.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void findGuestModifiedAfterUpdate() throws Exception {
+        Guest guest = guestRepository.save(Guest.builder().name("Versioned Guest").build());
+        String eTag = mockMvc.perform(get("/guest/{id}", guest.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/guest/{id}", guest.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        Thread.sleep(5);
+        mockMvc.perform(put("/guest").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"id\":" + guest.getId() + ",\"name\":\"Renamed Guest\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/guest/{id}", guest.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Renamed Guest"));
+    }
+
+    @Test
+    public void findScheduleTwoStatements() throws Exception {
+        statistics.clear();
+
+        mockMvc.perform(get("/schedule/{id}", firstSchedule.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tennisCourt.name").value(firstCourt.getName()));
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void findSchedulesByDatesOneStatement() throws Exception {
+        scheduleRangeCache.clear();
+        statistics.clear();
+
+        mockMvc.perform(get("/schedule/{start}/{end}", DAY.toString(), DAY.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(COURTS * SCHEDULES_PER_COURT))
+                .andExpect(jsonPath("$.content[0].tennisCourt.name").exists());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void findSchedulesByDatesPagesOneStatementEach() throws Exception {
+        scheduleRangeCache.clear();
+        assertEquals(COURTS * SCHEDULES_PER_COURT, walkPages("/schedule/" + DAY + "/" + DAY, 1));
+    }
+
+    @Test
+    public void findAllReservationsPagesTwoStatementsEach() throws Exception {
+        assertEquals(COURTS * SCHEDULES_PER_COURT, walkPages("/reservation/list/" + DAY + "T00:00/" + DAY + "T23:59", 2));
+    }
+
+    /* Follows the next cursor to the end with pages of 5, checking every page, including the last
+       and partial one, costs the same number of statements. Returns the number of distinct rows seen.
+     */
+    private int walkPages(String uri, int statementsPerPage) throws Exception {
+        Set<Long> ids = new HashSet<>();
+        String after = null;
+        do {
+            statistics.clear();
+            MockHttpServletRequestBuilder request = get(uri).param("limit", "5");
+            if (after != null) {
+                request.param("after", after);
+            }
+            String body = mockMvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+            assertEquals(statementsPerPage, statistics.getPrepareStatementCount());
+
+            List<Number> pageIds = JsonPath.read(body, "$.content[*].id");
+            pageIds.forEach(id -> ids.add(id.longValue()));
+            after = JsonPath.<List<String>>read(body, "$..nextCursor").stream().findFirst().orElse(null);
+        } while (after != null);
+        return ids.size();
+    }
+
+    @Test
+    public void findSchedulesByDatesCachedUntilDayChanges() throws Exception {
+        TennisCourt tennisCourt = new TennisCourt();
+        tennisCourt.setName("Polled Court");
+        tennisCourt = tennisCourtRepository.save(tennisCourt);
+        LocalDate day = DAY.plusDays(1);
+        String uri = "/schedule/" + day + "/" + day;
+        mockMvc.perform(get(uri)).andExpect(jsonPath("$.content.length()").value(0));
+        statistics.clear();
+
+        String eTag = mockMvc.perform(get(uri)).andExpect(status().isOk()).andExpect(jsonPath("$.content.length()").value(0))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get(uri).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isNotModified());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        mockMvc.perform(post("/schedule").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"tennisCourtId\":" + tennisCourt.getId() + ",\"startDateTime\":\"" + day + "T10:00\"}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get(uri).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(jsonPath("$.content.length()").value(1));
+    }
+
+    @Test
+    public void findTennisCourtWithSchedulesTwoStatements() throws Exception {
+        statistics.clear();
+
+        mockMvc.perform(get("/court/schedule/{id}", firstCourt.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tennisCourtSchedules.length()").value(SCHEDULES_PER_COURT));
+
+        // The version, then the schedules; the court is cached since it was saved.
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void findGuestFromCacheOnlyVersionStatement() throws Exception {
+        Guest guest = guestRepository.save(Guest.builder().name("Cached Guest").build());
+        mockMvc.perform(get("/guest/{id}", guest.getId())).andExpect(status().isOk());
+        statistics.clear();
+
+        mockMvc.perform(get("/guest/{id}", guest.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Cached Guest"));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getDomainDataRegionStatistics(Guest.class.getName()).getHitCount());
+    }
+
+    @Test
+    public void updateGuestEvictsCache() throws Exception {
+        Guest guest = guestRepository.save(Guest.builder().name("Old Name").build());
+        mockMvc.perform(get("/guest/{id}", guest.getId())).andExpect(jsonPath("$.name").value("Old Name"));
+
+        mockMvc.perform(put("/guest").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"id\":" + guest.getId() + ",\"name\":\"New Name\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/guest/{id}", guest.getId())).andExpect(jsonPath("$.name").value("New Name"));
+
+        mockMvc.perform(delete("/guest/{id}", guest.getId())).andExpect(status().isOk());
+
+        mockMvc.perform(get("/guest/{id}", guest.getId())).andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void findCacheStatistics() throws Exception {
+        mockMvc.perform(get("/cache/statistics"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].region").value(containsInAnyOrder(Guest.class.getName(), TennisCourt.class.getName())))
+                .andExpect(jsonPath("$[0].hitCount").isNumber());
+    }
+}
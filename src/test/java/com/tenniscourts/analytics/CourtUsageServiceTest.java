@@ -0,0 +1,168 @@
+package com.tenniscourts.analytics;
+
+import com.tenniscourts.reservations.Reservation;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SpringBootTest
+@RunWith(MockitoJUnitRunner.class)
+@ContextConfiguration(classes = CourtUsageService.class)
+public class CourtUsageServiceTest {
+    @Mock
+    CourtDailyUsageRepository courtDailyUsageRepository;
+
+    @Mock
+    CourtDailyUsageMapper courtDailyUsageMapper;
+
+    @InjectMocks
+    CourtUsageService courtUsageService;
+
+    private static final LocalDate DAY = LocalDate.now().plusDays(1);
+
+    @Test
+    public void findCourtUsageInvalidPeriod() {
+        assertThrows(IllegalArgumentException.class, () -> courtUsageService.findCourtUsage(1L, DAY, DAY.minusDays(1)));
+    }
+
+    @Test
+    public void recordBookingsGroupedByCourtAndDay() {
+        when(courtDailyUsageRepository.increment(anyLong(), any(LocalDate.class), anyLong(), anyLong(), anyLong(), anyLong(),
+                any(BigDecimal.class))).thenReturn(1);
+
+        courtUsageService.recordBookings(Arrays.asList(
+                reservation(schedule(1L, DAY.atTime(8, 0))),
+                reservation(schedule(1L, DAY.atTime(9, 0))),
+                reservation(schedule(1L, DAY.plusDays(1).atTime(8, 0)))));
+
+        verify(courtDailyUsageRepository).increment(1L, DAY, 0, 2, 0, 0, BigDecimal.ZERO);
+        verify(courtDailyUsageRepository).increment(1L, DAY.plusDays(1), 0, 1, 0, 0, BigDecimal.ZERO);
+        verify(courtDailyUsageRepository, never()).saveAndFlush(any(CourtDailyUsage.class));
+    }
+
+    @Test
+    public void recordCancellationInsertsFirstRow() {
+        Reservation reservation = reservation(schedule(2L, DAY.atTime(8, 0)));
+        reservation.setValue(BigDecimal.valueOf(2.5));
+
+        when(courtDailyUsageRepository.increment(anyLong(), any(LocalDate.class), anyLong(), anyLong(), anyLong(), anyLong(),
+                any(BigDecimal.class))).thenReturn(0);
+
+        courtUsageService.recordCancellation(reservation);
+
+        ArgumentCaptor<CourtDailyUsage> usage = ArgumentCaptor.forClass(CourtDailyUsage.class);
+        verify(courtDailyUsageRepository).saveAndFlush(usage.capture());
+        assertEquals(2L, usage.getValue().getTennisCourtId());
+        assertEquals(DAY, usage.getValue().getUsageDay());
+        assertEquals(-1, usage.getValue().getReservations());
+        assertEquals(1, usage.getValue().getCancellations());
+        assertEquals(BigDecimal.valueOf(2.5), usage.getValue().getRetainedDeposits());
+    }
+
+    @Test
+    public void recordCancellationsGroupedByCourtAndDay() {
+        Reservation first = reservation(schedule(1L, DAY.atTime(8, 0)));
+        first.setValue(BigDecimal.valueOf(2.5));
+        Reservation second = reservation(schedule(1L, DAY.atTime(9, 0)));
+        second.setValue(BigDecimal.valueOf(5));
+
+        when(courtDailyUsageRepository.increment(anyLong(), any(LocalDate.class), anyLong(), anyLong(), anyLong(), anyLong(),
+                any(BigDecimal.class))).thenReturn(1);
+
+        courtUsageService.recordCancellations(Arrays.asList(first, second));
+
+        verify(courtDailyUsageRepository).increment(1L, DAY, 0, -2, 2, 0, BigDecimal.valueOf(7.5));
+    }
+
+    @Test
+    public void recordCompletionsRetainsNoShowDeposits() {
+        Reservation completed = reservation(schedule(1L, DAY.atTime(8, 0)));
+        completed.setReservationStatus(ReservationStatus.COMPLETED);
+        Reservation noShow = reservation(schedule(1L, DAY.atTime(9, 0)));
+        noShow.setReservationStatus(ReservationStatus.NO_SHOW);
+
+        when(courtDailyUsageRepository.increment(anyLong(), any(LocalDate.class), anyLong(), anyLong(), anyLong(), anyLong(),
+                any(BigDecimal.class))).thenReturn(1);
+
+        courtUsageService.recordCompletions(Arrays.asList(completed, noShow));
+
+        verify(courtDailyUsageRepository).increment(1L, DAY, 0, 0, 0, 0, BigDecimal.TEN);
+    }
+
+    @Test
+    public void recordScheduleSuccess() {
+        when(courtDailyUsageRepository.increment(anyLong(), any(LocalDate.class), anyLong(), anyLong(), anyLong(), anyLong(),
+                any(BigDecimal.class))).thenReturn(1);
+
+        courtUsageService.recordSchedules(Collections.singletonList(schedule(1L, DAY.atTime(8, 0))));
+
+        verify(courtDailyUsageRepository).increment(1L, DAY, 1, 0, 0, 0, BigDecimal.ZERO);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void rebuildFromHistory() {
+        List<Object[]> schedules = new ArrayList<>();
+        schedules.add(new Object[]{1L, Date.valueOf(DAY), 4L});
+        List<Object[]> reservations = new ArrayList<>();
+        reservations.add(new Object[]{1L, Date.valueOf(DAY), ReservationStatus.READY_TO_PLAY, 2L, BigDecimal.valueOf(20)});
+        reservations.add(new Object[]{1L, Date.valueOf(DAY), ReservationStatus.COMPLETED, 1L, BigDecimal.ZERO});
+        reservations.add(new Object[]{1L, Date.valueOf(DAY), ReservationStatus.NO_SHOW, 1L, BigDecimal.TEN});
+        reservations.add(new Object[]{1L, Date.valueOf(DAY), ReservationStatus.CANCELLED, 1L, BigDecimal.valueOf(2.5)});
+        reservations.add(new Object[]{1L, Date.valueOf(DAY), ReservationStatus.RESCHEDULED, 1L, BigDecimal.valueOf(5)});
+        reservations.add(new Object[]{3L, Date.valueOf(DAY), ReservationStatus.CANCELLED, 1L, BigDecimal.ONE});
+
+        when(courtDailyUsageRepository.countSchedulesByCourtAndDay()).thenReturn(schedules);
+        when(courtDailyUsageRepository.sumReservationsByCourtDayAndStatus()).thenReturn(reservations);
+
+        assertEquals(2, courtUsageService.rebuild());
+
+        ArgumentCaptor<Collection<CourtDailyUsage>> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(courtDailyUsageRepository).deleteAllInBatch();
+        verify(courtDailyUsageRepository).saveAll(saved.capture());
+
+        CourtDailyUsage firstCourt = saved.getValue().stream().filter(usage -> usage.getTennisCourtId() == 1L).findFirst().get();
+        assertEquals(4, firstCourt.getSchedules());
+        assertEquals(4, firstCourt.getReservations());
+        assertEquals(1, firstCourt.getCancellations());
+        assertEquals(1, firstCourt.getReschedules());
+        assertEquals(BigDecimal.valueOf(17.5), firstCourt.getRetainedDeposits());
+    }
+
+    private Schedule schedule(Long tennisCourtId, LocalDateTime startDateTime) {
+        TennisCourt tennisCourt = new TennisCourt();
+        tennisCourt.setId(tennisCourtId);
+        return Schedule.builder().tennisCourt(tennisCourt).startDateTime(startDateTime).endDateTime(startDateTime.plusHours(1)).build();
+    }
+
+    private Reservation reservation(Schedule schedule) {
+        return Reservation.builder().schedule(schedule).reservationStatus(ReservationStatus.READY_TO_PLAY).value(BigDecimal.TEN).build();
+    }
+}
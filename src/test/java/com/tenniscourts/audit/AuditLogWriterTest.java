@@ -0,0 +1,78 @@
+package com.tenniscourts.audit;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@RunWith(MockitoJUnitRunner.class)
+public class AuditLogWriterTest {
+    @Mock
+    AuditLogEntryRepository auditLogEntryRepository;
+
+    @Test
+    public void appendDropsWhenQueueFull() {
+        AuditLogWriter auditLogWriter = new AuditLogWriter(auditLogEntryRepository, TransactionOperations.withoutTransaction(), 2, 10);
+
+        assertTrue(auditLogWriter.append(new AuditLogEntry()));
+        assertTrue(auditLogWriter.append(new AuditLogEntry()));
+        assertFalse(auditLogWriter.append(new AuditLogEntry()));
+        assertEquals(1, auditLogWriter.getDropped());
+        verify(auditLogEntryRepository, never()).saveAll(anyIterable());
+    }
+
+    @Test
+    public void flushWritesInBatches() {
+        AuditLogWriter auditLogWriter = new AuditLogWriter(auditLogEntryRepository, TransactionOperations.withoutTransaction(), 100, 2);
+        for (int i = 0; i < 5; i++) {
+            auditLogWriter.append(new AuditLogEntry());
+        }
+
+        List<Integer> batchSizes = new ArrayList<>();
+        when(auditLogEntryRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            batchSizes.add(((List<?>) invocation.getArguments()[0]).size());
+            return invocation.getArguments()[0];
+        });
+
+        assertEquals(5, auditLogWriter.flush());
+        assertEquals(Arrays.asList(2, 2, 1), batchSizes);
+    }
+
+    @Test
+    public void flushKeepsGoingAfterFailedBatch() {
+        AuditLogWriter auditLogWriter = new AuditLogWriter(auditLogEntryRepository, TransactionOperations.withoutTransaction(), 100, 2);
+        for (int i = 0; i < 4; i++) {
+            auditLogWriter.append(new AuditLogEntry());
+        }
+
+        when(auditLogEntryRepository.saveAll(anyIterable())).thenThrow(new IllegalStateException("Database down.")).thenReturn(null);
+
+        assertEquals(2, auditLogWriter.flush());
+    }
+
+    @Test
+    public void startWritesInBackground() throws InterruptedException {
+        AuditLogWriter auditLogWriter = new AuditLogWriter(auditLogEntryRepository, TransactionOperations.withoutTransaction(), 100, 10);
+        auditLogWriter.start();
+
+        auditLogWriter.append(new AuditLogEntry());
+        auditLogWriter.stop();
+
+        verify(auditLogEntryRepository).saveAll(anyIterable());
+        assertEquals(0, auditLogWriter.flush());
+    }
+}
@@ -0,0 +1,57 @@
+package com.tenniscourts.audit;
+
+import com.tenniscourts.guests.Guest;
+import org.junit.After;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class CustomAuditEntityListenerTest {
+
+    CustomAuditEntityListener customAuditEntityListener = new CustomAuditEntityListener();
+
+    @After
+    public void clearContext() {
+        AuditContext.clear();
+    }
+
+    @Test
+    public void prePersistStampsCaller() {
+        AuditContext.set(new AuditContext("10.0.0.7", 42L));
+        Guest guest = Guest.builder().name("Tennis Man").build();
+
+        customAuditEntityListener.prePersist(guest);
+
+        assertEquals(42L, guest.getUserCreate());
+        assertEquals(42L, guest.getUserUpdate());
+        assertEquals("10.0.0.7", guest.getIpNumberCreate());
+        assertEquals("10.0.0.7", guest.getIpNumberUpdate());
+        assertNotNull(guest.getDateCreate());
+    }
+
+    @Test
+    public void preUpdateWithoutRequestStampsSystem() {
+        Guest guest = Guest.builder().name("Tennis Man").build();
+        guest.setUserUpdate(42L);
+
+        customAuditEntityListener.preUpdate(guest);
+
+        assertEquals(CustomAuditEntityListener.USER_SYSTEM_ID, guest.getUserUpdate());
+        assertNotNull(guest.getIpNumberUpdate());
+        assertNotNull(guest.getDateUpdate());
+    }
+
+    @Test
+    public void wrapCarriesCallerToOtherThread() throws Exception {
+        AuditContext.set(new AuditContext("10.0.0.7", 42L));
+
+        Long userId = CompletableFuture.supplyAsync(AuditContext.wrap(() -> AuditContext.current().getUserId())).get();
+
+        assertEquals(42L, userId);
+    }
+}
@@ -0,0 +1,123 @@
+package com.tenniscourts.config.idempotency;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.tenniscourts.config.idempotency.IdempotencyStore.IDEMPOTENT_REPLAYED;
+import static org.junit.jupiter.api.Assertions.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class IdempotencyStoreTest {
+
+    IdempotencyStore idempotencyStore = new IdempotencyStore(60, 100);
+
+    AtomicInteger writes = new AtomicInteger();
+
+    @Test
+    public void concurrentDuplicatesWriteOnce() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<ResponseEntity<String>> first = CompletableFuture.supplyAsync(() ->
+                idempotencyStore.execute("key", "book", () -> {
+                    writing.countDown();
+                    await(release);
+                    return ResponseEntity.ok("booked " + writes.incrementAndGet());
+                }));
+        writing.await(5, TimeUnit.SECONDS);
+        CompletableFuture<ResponseEntity<String>> duplicate = CompletableFuture.supplyAsync(() ->
+                idempotencyStore.execute("key", "book", () -> ResponseEntity.ok("booked " + writes.incrementAndGet())));
+
+        Thread.sleep(50);
+        assertFalse(duplicate.isDone());
+        release.countDown();
+
+        assertEquals("booked 1", first.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals("booked 1", duplicate.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals("true", duplicate.get().getHeaders().getFirst(IDEMPOTENT_REPLAYED));
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    public void differentRequestWithSameKeyRejected() {
+        idempotencyStore.execute("key", "cancel 1", () -> ResponseEntity.ok("cancelled"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> idempotencyStore.execute("key", "cancel 2", () -> ResponseEntity.ok("cancelled")));
+    }
+
+    @Test
+    public void expiredAndOldestEntriesEvicted() {
+        IdempotencyStore expiring = new IdempotencyStore(0, 100);
+        expiring.execute("key", "book", () -> ResponseEntity.ok(writes.incrementAndGet()));
+        expiring.execute("key", "book", () -> ResponseEntity.ok(writes.incrementAndGet()));
+        assertEquals(2, writes.get());
+
+        IdempotencyStore bounded = new IdempotencyStore(60, 2);
+        for (int i = 0; i < 5; i++) {
+            bounded.execute("key " + i, "book", () -> ResponseEntity.ok(writes.incrementAndGet()));
+        }
+        assertEquals(2, bounded.size());
+    }
+
+    @Test
+    public void evictionSkipsPlaceOfFailedEntry() {
+        IdempotencyStore small = new IdempotencyStore(60, 2);
+        small.execute("x", "book", () -> ResponseEntity.ok("booked x"));
+        assertThrows(IllegalStateException.class, () -> small.execute("a", "book", () -> {
+            throw new IllegalStateException("Failed.");
+        }));
+        small.execute("b", "book", () -> ResponseEntity.ok("booked b"));
+        small.execute("a", "book", () -> ResponseEntity.ok("booked a " + writes.incrementAndGet()));
+        small.execute("c", "book", () -> ResponseEntity.ok("booked c"));
+
+        assertEquals(2, small.size());
+        assertEquals("booked a 1", small.execute("a", "book", () -> ResponseEntity.ok("booked a " + writes.incrementAndGet())).getBody());
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    public void failureNotKept() {
+        assertThrows(IllegalArgumentException.class, () -> idempotencyStore.execute("key", "book", () -> {
+            throw new IllegalArgumentException("Schedule is already reserved.");
+        }));
+
+        ResponseEntity<String> response = idempotencyStore.execute("key", "book", () -> ResponseEntity.ok("booked"));
+        assertEquals("booked", response.getBody());
+        assertNull(response.getHeaders().getFirst(IDEMPOTENT_REPLAYED));
+    }
+
+    @Test
+    public void replayWithoutWriting() {
+        ResponseEntity<Void> created = idempotencyStore.execute("key", "book", () -> {
+            writes.incrementAndGet();
+            return ResponseEntity.created(URI.create("/reservation/1")).build();
+        });
+        ResponseEntity<Void> replayed = idempotencyStore.execute("key", "book", () -> {
+            writes.incrementAndGet();
+            return ResponseEntity.created(URI.create("/reservation/2")).build();
+        });
+
+        assertEquals(1, writes.get());
+        assertEquals(HttpStatus.CREATED, replayed.getStatusCode());
+        assertEquals(created.getHeaders().getLocation(), replayed.getHeaders().getLocation());
+        assertEquals("true", replayed.getHeaders().getFirst(IDEMPOTENT_REPLAYED));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
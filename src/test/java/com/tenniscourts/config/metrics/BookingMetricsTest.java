@@ -0,0 +1,56 @@
+package com.tenniscourts.config.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class BookingMetricsTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    BookingMetrics bookingMetrics = new BookingMetrics(meterRegistry);
+
+    @Test
+    public void recordConflict() {
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> bookingMetrics.record("book", () -> {
+            throw new ObjectOptimisticLockingFailureException("Reservation", 1L);
+        }));
+
+        assertEquals(1, meterRegistry.get("booking.operations").tags("operation", "book", "outcome", "conflict").timer().count());
+        assertEquals(1, meterRegistry.get("booking.conflicts").tag("operation", "book").counter().count());
+    }
+
+    @Test
+    public void recordRefund() {
+        bookingMetrics.recordRefund(BigDecimal.ZERO);
+        bookingMetrics.recordRefund(new BigDecimal("7.50"));
+
+        assertEquals(1, meterRegistry.get("booking.refunds").counter().count());
+        assertEquals(7.5, meterRegistry.get("booking.refunds.amount").counter().count());
+    }
+
+    @Test
+    public void recordRejection() {
+        assertThrows(IllegalArgumentException.class, () -> bookingMetrics.record("cancel", () -> {
+            throw new IllegalArgumentException("Cannot cancel/reschedule because it's not in ready to play status.");
+        }));
+
+        assertEquals(1, meterRegistry.get("booking.operations").tags("operation", "cancel", "outcome", "rejected").timer().count());
+        assertEquals(1, meterRegistry.get("booking.rejections").tag("operation", "cancel").counter().count());
+    }
+
+    @Test
+    public void recordSuccess() {
+        assertEquals("ok", bookingMetrics.record("book", () -> "ok"));
+
+        assertEquals(1, meterRegistry.get("booking.operations").tags("operation", "book", "outcome", "success").timer().count());
+        assertTrue(meterRegistry.find("booking.rejections").counters().isEmpty());
+    }
+}
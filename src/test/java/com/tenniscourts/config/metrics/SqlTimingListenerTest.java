@@ -0,0 +1,48 @@
+package com.tenniscourts.config.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class SqlTimingListenerTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void normalize() {
+        assertEquals("select g.id from guest g where g.id in (?, ...) and g.name = ? limit ?",
+                SqlStatements.normalize("select g.id\n    from guest g\n    where g.id in (?, ?, ?)\n" +
+                        "    and g.name = 'Roger''s' limit 10"));
+        assertEquals("select reservatio0_.id from reservation reservatio0_ where reservatio0_.id=?",
+                SqlStatements.normalize("select reservatio0_.id from reservation reservatio0_ where reservatio0_.id=?"));
+    }
+
+    @Test
+    public void statementsBeyondTheLimitAreCountedAsOther() {
+        SqlTimingListener sqlTimingListener = new SqlTimingListener(meterRegistry, 0, 500, 1);
+
+        execute(sqlTimingListener, "select * from guest where id in (?, ?)");
+        execute(sqlTimingListener, "select * from guest where id in (?, ?, ?)");
+        execute(sqlTimingListener, "select * from tennis_court where id = ?");
+
+        assertEquals(2, meterRegistry.get("sql.statements").tag("statement", "select * from guest where id in (?, ...)").timer().count());
+        assertEquals(1, meterRegistry.get("sql.statements").tag("statement", "other").timer().count());
+    }
+
+    private static void execute(SqlTimingListener sqlTimingListener, String sql) {
+        ExecutionInfo executionInfo = new ExecutionInfo();
+        List<QueryInfo> queryInfoList = Collections.singletonList(new QueryInfo(sql));
+
+        sqlTimingListener.beforeQuery(executionInfo, queryInfoList);
+        sqlTimingListener.afterQuery(executionInfo, queryInfoList);
+    }
+}
@@ -0,0 +1,76 @@
+package com.tenniscourts.config.persistence;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class OptimisticRetryExecutorTest {
+
+    OptimisticRetryExecutor optimisticRetryExecutor = new OptimisticRetryExecutor(TransactionOperations.withoutTransaction());
+
+    AtomicInteger attempts = new AtomicInteger();
+
+    @Test
+    public void executeRetriesOptimisticLockingFailure() {
+        assertEquals("booked", optimisticRetryExecutor.execute(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ObjectOptimisticLockingFailureException("Schedule", 1L);
+            }
+            return "booked";
+        }));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void executeRetriesLostRace() {
+        assertEquals("booked", optimisticRetryExecutor.execute(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw violation("UK_RESERVATION_ACTIVE_SCHEDULE_INDEX_C ON PUBLIC.RESERVATION(ACTIVE_SCHEDULE_ID)");
+            }
+            return "booked";
+        }));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void executeGivesUpOnLostRaceAfterMaxAttempts() {
+        assertThrows(DataIntegrityViolationException.class, () -> optimisticRetryExecutor.execute(() -> {
+            attempts.incrementAndGet();
+            throw violation("uk_court_daily_usage_court_day");
+        }));
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void executeDoesNotRetryOtherViolations() {
+        assertThrows(DataIntegrityViolationException.class, () -> optimisticRetryExecutor.execute(() -> {
+            attempts.incrementAndGet();
+            throw violation("FK_RESERVATION_GUEST: PUBLIC.RESERVATION FOREIGN KEY(GUEST_ID) REFERENCES PUBLIC.GUEST(ID)");
+        }));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void isLostRaceOnlyForRaceConstraints() {
+        assertTrue(OptimisticRetryExecutor.isLostRace(violation("UK_WAITLIST_ENTRY_SCHEDULE_ACTIVE_GUEST_INDEX_8")));
+        assertTrue(OptimisticRetryExecutor.isLostRace(new DataIntegrityViolationException("uk_court_daily_usage_court_day")));
+        assertFalse(OptimisticRetryExecutor.isLostRace(new DataIntegrityViolationException("could not execute statement")));
+        assertFalse(OptimisticRetryExecutor.isLostRace(new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("NULL not allowed for column \"NAME\"", new SQLException(), null))));
+    }
+
+    private static DataIntegrityViolationException violation(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", new SQLException(), constraintName));
+    }
+}
@@ -0,0 +1,50 @@
+package com.tenniscourts.config.startup;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class BeanStartupTimerTest {
+
+    @Test
+    public void timesBeansWithoutTheirDependencies() {
+        Map<String, BeanTiming> timings;
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(BeanStartupTimer.class, Beans.class)) {
+            timings = context.getBean(BeanStartupTimer.class).getTimings().stream()
+                    .collect(Collectors.toMap(BeanTiming::getBeanName, Function.identity()));
+        }
+
+        BeanTiming slow = timings.get("slow");
+        BeanTiming dependent = timings.get("dependent");
+        assertTrue(slow.getSelfNanos() >= 50_000_000L);
+        assertEquals(slow.getTotalNanos(), dependent.getTotalNanos() - dependent.getSelfNanos());
+        assertEquals(Beans.class.getName(), dependent.getConfiguration());
+        assertNull(timings.get("beanStartupTimerTest.Beans").getConfiguration());
+    }
+
+    @Configuration
+    static class Beans {
+
+        /* Declared first so it's created first and creates slow on the way. */
+        @Bean
+        public StringBuilder dependent(String slow) {
+            return new StringBuilder(slow);
+        }
+
+        @Bean
+        public String slow() throws InterruptedException {
+            Thread.sleep(50);
+            return "slow";
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.tenniscourts.guests;
 
+import com.tenniscourts.config.pagination.KeysetCursor;
+import com.tenniscourts.config.pagination.KeysetPage;
 import com.tenniscourts.exceptions.EntityNotFoundException;
+import com.tenniscourts.config.persistence.EntityVersion;
+import com.tenniscourts.config.persistence.RowVersion;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -9,13 +13,24 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.context.ContextConfiguration;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
@@ -32,6 +47,67 @@ public class GuestServiceTest {
     @InjectMocks
     GuestService guestService;
 
+    @Test
+    public void findAllGuestsInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> guestService.findAllGuests("not a cursor", 10));
+    }
+
+    @Test
+    public void findAllGuestsLastPage() {
+        when(guestRepository.findByIdGreaterThanOrderById(anyLong(), any())).thenReturn(new SliceImpl<>(Collections.emptyList()));
+        when(guestMapper.map(anyList())).thenReturn(Collections.emptyList());
+
+        KeysetPage<GuestDTO> page = guestService.findAllGuests(KeysetCursor.of(10L).encode(), 100000);
+
+        assertNull(page.getNextCursor());
+        verify(guestRepository).findByIdGreaterThanOrderById(eq(10L),
+                argThat(pageable -> pageable.getPageNumber() == 0 && pageable.getPageSize() == KeysetPage.MAX_LIMIT));
+    }
+
+    @Test
+    public void findAllGuestsNextCursor() {
+        Guest firstGuest = Guest.builder().name("Tennis Man").build();
+        firstGuest.setId(1L);
+        Guest secondGuest = Guest.builder().name("Tennis Woman").build();
+        secondGuest.setId(2L);
+
+        when(guestRepository.findByIdGreaterThanOrderById(eq(0L), any()))
+                .thenReturn(new SliceImpl<>(Arrays.asList(firstGuest, secondGuest), PageRequest.of(0, 2), true));
+        when(guestMapper.map(anyList())).thenAnswer(invocation -> {
+            List<GuestDTO> guestDTOS = new ArrayList<>();
+            for (Object guest : (List) invocation.getArguments()[0]) {
+                guestDTOS.add(GuestDTO.builder().id(((Guest) guest).getId()).build());
+            }
+            return guestDTOS;
+        });
+
+        KeysetPage<GuestDTO> page = guestService.findAllGuests(null, 2);
+
+        assertEquals(2, page.getContent().size());
+        assertEquals(2L, KeysetCursor.decode(page.getNextCursor()).getId());
+    }
+
+    @Test
+    public void findAllGuestsVersionFollowsThePage() {
+        LocalDateTime updated = LocalDateTime.of(2030, 1, 7, 10, 0);
+        List<RowVersion> rows = Arrays.asList(new RowVersion(11L, updated), new RowVersion(12L, null));
+
+        when(guestRepository.findRowVersionsByIdGreaterThan(eq(10L), any()))
+                .thenReturn(new SliceImpl<>(rows, PageRequest.of(0, 2), false))
+                .thenReturn(new SliceImpl<>(rows, PageRequest.of(0, 2), true))
+                .thenReturn(new SliceImpl<>(Arrays.asList(new RowVersion(11L, updated), new RowVersion(12L, updated)), PageRequest.of(0, 2), false));
+
+        EntityVersion lastPage = guestService.findAllGuestsVersion(KeysetCursor.of(10L).encode(), 2);
+        EntityVersion grown = guestService.findAllGuestsVersion(KeysetCursor.of(10L).encode(), 2);
+        EntityVersion rowUpdated = guestService.findAllGuestsVersion(KeysetCursor.of(10L).encode(), 2);
+
+        assertEquals(updated, lastPage.getLastModified());
+        assertNotEquals(lastPage.getETag(), grown.getETag());
+        assertNotEquals(lastPage.getETag(), rowUpdated.getETag());
+        verify(guestRepository, times(3)).findRowVersionsByIdGreaterThan(eq(10L),
+                argThat(pageable -> pageable.getPageNumber() == 0 && pageable.getPageSize() == 2));
+    }
+
     @Test
     public void findGuestByIdNotFound() {
         when(guestRepository.findById(anyLong())).thenReturn(Optional.empty());
@@ -131,4 +207,11 @@ public class GuestServiceTest {
         assertEquals(1L, returnGuestDTO.getId());
         assertEquals("Tennis Dude", returnGuestDTO.getName());
     }
+
+    @Test
+    public void findGuestVersionNotFound() {
+        when(guestRepository.findVersionById(anyLong())).thenReturn(new EntityVersion(0L, null));
+
+        assertThrows(EntityNotFoundException.class, () -> guestService.findGuestVersion(1L));
+    }
 }
@@ -0,0 +1,81 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.exceptions.EntityNotFoundException;
+import org.junit.After;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class BookingLanesTest {
+
+    BookingLanes bookingLanes = new BookingLanes(true, 2);
+
+    @After
+    public void shutdown() {
+        bookingLanes.shutdown();
+    }
+
+    @Test
+    public void executeDisabledRunsOnCallerThread() {
+        BookingLanes disabledLanes = new BookingLanes(false, 0);
+
+        assertEquals(Thread.currentThread().getName(), disabledLanes.execute(() -> {
+            throw new AssertionError("The court shouldn't be looked up when lanes are off.");
+        }, () -> Thread.currentThread().getName()));
+    }
+
+    @Test
+    public void executeCourtNotFoundRunsOnCallerThread() {
+        assertEquals(Thread.currentThread().getName(),
+                bookingLanes.execute(Optional::empty, () -> Thread.currentThread().getName()));
+    }
+
+    @Test
+    public void executeSameCourtSameLane() {
+        String lane = bookingLanes.execute(() -> Optional.of(3L), () -> Thread.currentThread().getName());
+
+        assertTrue(lane.startsWith("booking-lane-"));
+        assertEquals(lane, bookingLanes.execute(() -> Optional.of(3L), () -> Thread.currentThread().getName()));
+        assertEquals(lane, bookingLanes.execute(() -> Optional.of(5L), () -> Thread.currentThread().getName()));
+        assertNotEquals(lane, bookingLanes.execute(() -> Optional.of(4L), () -> Thread.currentThread().getName()));
+    }
+
+    @Test
+    public void executeBusyCourtDoesNotBlockOtherLanes() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean otherCourtRan = new AtomicBoolean();
+
+        Thread busyCourt = new Thread(() -> bookingLanes.execute(() -> Optional.of(1L), () -> {
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }));
+        busyCourt.start();
+
+        bookingLanes.execute(() -> Optional.of(2L), () -> {
+            otherCourtRan.set(true);
+            return null;
+        });
+        assertTrue(otherCourtRan.get());
+
+        release.countDown();
+        busyCourt.join();
+    }
+
+    @Test
+    public void executeRethrowsCommandException() {
+        assertThrows(EntityNotFoundException.class, () -> bookingLanes.execute(() -> Optional.of(1L), () -> {
+            throw new EntityNotFoundException("Schedule not found.");
+        }));
+    }
+}
@@ -0,0 +1,126 @@
+package com.tenniscourts.reservations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.schedules.Schedule;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SpringBootTest
+@RunWith(MockitoJUnitRunner.class)
+@ContextConfiguration(classes = ReservationHistoryExporter.class)
+public class ReservationHistoryExporterTest {
+    @Mock
+    ReservationRepository reservationRepository;
+
+    @Mock
+    ReservationMapper reservationMapper;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Spy
+    ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @InjectMocks
+    ReservationHistoryExporter reservationHistoryExporter;
+
+    @Test
+    public void exportCsvQuotesFields() throws Exception {
+        Reservation reservation = reservation(1L);
+
+        when(reservationRepository.streamAllBetweenTimes(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Stream.of(reservation));
+        when(reservationMapper.mapHistory(any(Reservation.class))).thenReturn(ReservationHistoryDTO.builder()
+                .reservationId(1L).tennisCourtName("Court \"A\", Paris").value(BigDecimal.TEN).build());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        reservationHistoryExporter.export(LocalDateTime.now().minusDays(1), null, ReservationHistoryExporter.Format.CSV, outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("reservationId,"));
+        assertEquals("1,,,\"Court \"\"A\"\", Paris\",,,,,10,", lines[1]);
+    }
+
+    @Test
+    public void exportEndCappedAtNow() throws Exception {
+        when(reservationRepository.streamAllBetweenTimes(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Stream.empty());
+
+        reservationHistoryExporter.export(LocalDateTime.now().minusDays(1), LocalDateTime.now().plusYears(1),
+                ReservationHistoryExporter.Format.NDJSON, new ByteArrayOutputStream());
+
+        verify(reservationRepository).streamAllBetweenTimes(any(LocalDateTime.class),
+                argThat(endDateTime -> !endDateTime.isAfter(LocalDateTime.now())));
+    }
+
+    @Test
+    public void exportFormatUnsupported() {
+        assertThrows(IllegalArgumentException.class, () -> ReservationHistoryExporter.Format.of("xml"));
+        assertEquals(ReservationHistoryExporter.Format.CSV, ReservationHistoryExporter.Format.of("csv"));
+    }
+
+    @Test
+    public void exportNdjsonDetachesAndClosesStream() throws Exception {
+        Reservation first = reservation(1L);
+        Reservation second = reservation(2L);
+        AtomicBoolean closed = new AtomicBoolean();
+
+        when(reservationRepository.streamAllBetweenTimes(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Stream.of(first, second).onClose(() -> closed.set(true)));
+        when(reservationMapper.mapHistory(any(Reservation.class))).thenAnswer(invocation -> {
+            Reservation r = (Reservation) invocation.getArguments()[0];
+            return ReservationHistoryDTO.builder().reservationId(r.getId()).guestId(r.getGuest().getId())
+                    .startDateTime(r.getSchedule().getStartDateTime()).build();
+        });
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        reservationHistoryExporter.export(LocalDateTime.now().minusDays(1), null, ReservationHistoryExporter.Format.NDJSON, outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(2L, objectMapper.readTree(lines[1]).get("reservationId").asLong());
+        assertTrue(objectMapper.readTree(lines[0]).get("startDateTime").isTextual());
+        assertTrue(closed.get());
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second.getSchedule());
+        verify(entityManager).detach(second.getGuest());
+    }
+
+    private Reservation reservation(Long id) {
+        Guest guest = Guest.builder().name("guestName").build();
+        guest.setId(id);
+        Schedule schedule = Schedule.builder().startDateTime(LocalDateTime.now().minusHours(3))
+                .endDateTime(LocalDateTime.now().minusHours(2)).build();
+        schedule.setId(id);
+        Reservation reservation = Reservation.builder().guest(guest).schedule(schedule)
+                .reservationStatus(ReservationStatus.READY_TO_PLAY).value(BigDecimal.TEN).build();
+        reservation.setId(id);
+        return reservation;
+    }
+}
@@ -1,11 +1,21 @@
 package com.tenniscourts.reservations;
 
+import com.tenniscourts.analytics.CourtUsageService;
+import com.tenniscourts.config.metrics.BookingMetrics;
+import com.tenniscourts.config.pagination.KeysetCursor;
+import com.tenniscourts.config.pagination.KeysetPage;
+import com.tenniscourts.config.persistence.EntityVersion;
+import com.tenniscourts.config.persistence.OptimisticRetryExecutor;
 import com.tenniscourts.exceptions.EntityNotFoundException;
 import com.tenniscourts.guests.Guest;
 import com.tenniscourts.guests.GuestRepository;
 import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleIndex;
 import com.tenniscourts.schedules.ScheduleRepository;
+import com.tenniscourts.waitlist.WaitlistEntry;
+import com.tenniscourts.waitlist.WaitlistService;
 import com.tenniscourts.tenniscourts.TennisCourt;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Assert;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
@@ -13,19 +23,31 @@ import org.junit.runner.RunWith;
 import org.junit.runners.MethodSorters;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.support.TransactionOperations;
 
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
@@ -46,6 +68,27 @@ public class ReservationServiceTest {
     @Mock
     ReservationMapper reservationMapper;
 
+    @Mock
+    ScheduleIndex scheduleIndex;
+
+    @Spy
+    OptimisticRetryExecutor optimisticRetryExecutor = new OptimisticRetryExecutor(TransactionOperations.withoutTransaction());
+
+    @Spy
+    BookingLanes bookingLanes = new BookingLanes(false, 0);
+
+    @Mock
+    CourtUsageService courtUsageService;
+
+    @Mock
+    WaitlistService waitlistService;
+
+    @Spy
+    BookingMetrics bookingMetrics = new BookingMetrics(new SimpleMeterRegistry());
+
+    @Mock
+    EntityManager entityManager;
+
     @InjectMocks
     ReservationService reservationService;
 
@@ -64,7 +107,7 @@ public class ReservationServiceTest {
         Guest guest = Guest.builder().name("guestName").build();
         guest.setId(1L);
         when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest));
-        when(scheduleRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.empty());
 
         CreateReservationRequestDTO createReservationRequestDTO = CreateReservationRequestDTO
                 .builder().guestId(1L).scheduleId(1L).build();
@@ -82,8 +125,9 @@ public class ReservationServiceTest {
         reservation.setId(1L);
 
         when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest));
-        when(scheduleRepository.findById(anyLong())).thenReturn(Optional.of(schedule));
-        when(reservationRepository.findBySchedule_Id(anyLong())).thenReturn(Collections.singletonList(reservation));
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.of(schedule));
+        when(reservationRepository.existsBySchedule_IdAndGuest_IdAndReservationStatus(anyLong(), anyLong(), eq(ReservationStatus.READY_TO_PLAY)))
+                .thenReturn(true);
 
         CreateReservationRequestDTO createReservationRequestDTO = CreateReservationRequestDTO
                 .builder().guestId(1L).scheduleId(1L).build();
@@ -91,6 +135,24 @@ public class ReservationServiceTest {
         assertThrows(IllegalArgumentException.class, () -> reservationService.bookReservation(createReservationRequestDTO));
     }
 
+    @Test
+    public void bookReservationScheduleTaken() {
+        Guest guest = Guest.builder().name("guestName").build();
+        guest.setId(1L);
+        Schedule schedule = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(3)).endDateTime(LocalDateTime.now().plusHours(4)).build();
+        schedule.setId(1L);
+
+        when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest));
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.of(schedule));
+        when(reservationRepository.existsBySchedule_IdAndReservationStatus(1L, ReservationStatus.READY_TO_PLAY)).thenReturn(true);
+
+        CreateReservationRequestDTO createReservationRequestDTO = CreateReservationRequestDTO
+                .builder().guestId(1L).scheduleId(1L).build();
+
+        assertThrows(IllegalArgumentException.class, () -> reservationService.bookReservation(createReservationRequestDTO));
+        verify(reservationRepository, never()).save(any(Reservation.class));
+    }
+
     @Test
     public void bookReservationScheduleInPast() {
         Guest guest = Guest.builder().name("guestName").build();
@@ -103,13 +165,30 @@ public class ReservationServiceTest {
         reservation.setId(1L);
 
         when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest));
-        when(scheduleRepository.findById(anyLong())).thenReturn(Optional.of(schedule));
-        when(reservationRepository.findBySchedule_Id(anyLong())).thenReturn(Collections.singletonList(reservation));
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.of(schedule));
+
+        CreateReservationRequestDTO createReservationRequestDTO = CreateReservationRequestDTO
+                .builder().guestId(1L).scheduleId(1L).build();
+
+        assertThrows(IllegalArgumentException.class, () -> reservationService.bookReservation(createReservationRequestDTO));
+    }
+
+    @Test
+    public void bookReservationScheduleClosed() {
+        Guest guest = Guest.builder().name("guestName").build();
+        guest.setId(1L);
+        Schedule schedule = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(3)).endDateTime(LocalDateTime.now().plusHours(4))
+                .closed(true).build();
+        schedule.setId(1L);
+
+        when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest));
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.of(schedule));
 
         CreateReservationRequestDTO createReservationRequestDTO = CreateReservationRequestDTO
                 .builder().guestId(1L).scheduleId(1L).build();
 
         assertThrows(IllegalArgumentException.class, () -> reservationService.bookReservation(createReservationRequestDTO));
+        verify(reservationRepository, never()).save(any(Reservation.class));
     }
 
     @Test
@@ -124,8 +203,7 @@ public class ReservationServiceTest {
         reservation.setId(1L);
 
         when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest));
-        when(scheduleRepository.findById(anyLong())).thenReturn(Optional.of(schedule));
-        when(reservationRepository.findBySchedule_Id(anyLong())).thenReturn(Collections.singletonList(reservation));
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.of(schedule));
         when(reservationRepository.save(any(Reservation.class))).thenAnswer(invocation -> {
             Reservation r = (Reservation) invocation.getArguments()[0];
             r.setId(1L);
@@ -140,6 +218,177 @@ public class ReservationServiceTest {
 
         assertEquals(1L, reservationService.bookReservation(createReservationRequestDTO).getId());
         assertEquals(1L, reservationService.bookReservation(createReservationRequestDTO).getGuestId());
+        verify(scheduleIndex, times(2)).markBooked(schedule);
+        verify(courtUsageService, times(2)).recordBookings(anyCollection());
+    }
+
+    @Test
+    public void bookReservationRetriedAfterConcurrentUpdate() {
+        Guest guest = Guest.builder().name("guestName").build();
+        guest.setId(1L);
+        Schedule schedule = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(3)).endDateTime(LocalDateTime.now().plusHours(4)).build();
+        schedule.setId(1L);
+
+        when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest));
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.of(schedule));
+        when(reservationRepository.save(any(Reservation.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Schedule.class, 1L))
+                .thenAnswer(invocation -> {
+                    Reservation r = (Reservation) invocation.getArguments()[0];
+                    r.setId(1L);
+                    return r;
+                });
+        when(reservationMapper.map(any(Reservation.class))).thenAnswer(invocation ->
+                ReservationDTO.builder().id(((Reservation) invocation.getArguments()[0]).getId()).build());
+
+        CreateReservationRequestDTO createReservationRequestDTO = CreateReservationRequestDTO
+                .builder().guestId(1L).scheduleId(1L).build();
+
+        assertEquals(1L, reservationService.bookReservation(createReservationRequestDTO).getId());
+        verify(reservationRepository, times(2)).save(any(Reservation.class));
+        verify(scheduleIndex).markBooked(schedule);
+    }
+
+    @Test
+    public void bookReservationConcurrentUpdateRetriesExhausted() {
+        Guest guest = Guest.builder().name("guestName").build();
+        guest.setId(1L);
+        Schedule schedule = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(3)).endDateTime(LocalDateTime.now().plusHours(4)).build();
+        schedule.setId(1L);
+
+        when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest));
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.of(schedule));
+        when(reservationRepository.save(any(Reservation.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Schedule.class, 1L));
+
+        CreateReservationRequestDTO createReservationRequestDTO = CreateReservationRequestDTO
+                .builder().guestId(1L).scheduleId(1L).build();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> reservationService.bookReservation(createReservationRequestDTO));
+        verify(reservationRepository, times(3)).save(any(Reservation.class));
+        verify(scheduleIndex, never()).markBooked(any(Schedule.class));
+        verify(courtUsageService, never()).recordBookings(anyCollection());
+    }
+
+    @Test
+    public void bookReservationsDuplicateSchedules() {
+        CreateReservationsRequestDTO createReservationsRequestDTO = CreateReservationsRequestDTO
+                .builder().guestId(1L).scheduleIds(Arrays.asList(1L, 2L, 1L)).build();
+
+        assertThrows(IllegalArgumentException.class, () -> reservationService.bookReservations(createReservationsRequestDTO));
+    }
+
+    @Test
+    public void bookReservationsScheduleNotFound() {
+        Guest guest = Guest.builder().name("guestName").build();
+        guest.setId(1L);
+        Schedule schedule = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(3)).endDateTime(LocalDateTime.now().plusHours(4)).build();
+        schedule.setId(1L);
+
+        when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest));
+        when(scheduleRepository.findForBookingByIdIn(anyCollection())).thenReturn(Collections.singletonList(schedule));
+
+        CreateReservationsRequestDTO createReservationsRequestDTO = CreateReservationsRequestDTO
+                .builder().guestId(1L).scheduleIds(Arrays.asList(1L, 2L)).build();
+
+        assertThrows(EntityNotFoundException.class, () -> reservationService.bookReservations(createReservationsRequestDTO));
+    }
+
+    @Test
+    public void bookReservationsGuestAlreadyReserved() {
+        Guest guest = Guest.builder().name("guestName").build();
+        guest.setId(1L);
+        Schedule schedule1 = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(3)).endDateTime(LocalDateTime.now().plusHours(4)).build();
+        schedule1.setId(1L);
+        Schedule schedule2 = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(3)).endDateTime(LocalDateTime.now().plusHours(4)).build();
+        schedule2.setId(2L);
+
+        when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest));
+        when(scheduleRepository.findForBookingByIdIn(anyCollection())).thenReturn(Arrays.asList(schedule1, schedule2));
+        when(reservationRepository.findScheduleIdsByGuestIdAndScheduleIdInAndReservationStatus(anyLong(), anyCollection(), eq(ReservationStatus.READY_TO_PLAY)))
+                .thenReturn(Collections.singletonList(2L));
+
+        CreateReservationsRequestDTO createReservationsRequestDTO = CreateReservationsRequestDTO
+                .builder().guestId(1L).scheduleIds(Arrays.asList(1L, 2L)).build();
+
+        assertThrows(IllegalArgumentException.class, () -> reservationService.bookReservations(createReservationsRequestDTO));
+        verify(reservationRepository, never()).saveAll(anyIterable());
+    }
+
+    @Test
+    public void bookReservationsScheduleTaken() {
+        Guest guest = Guest.builder().name("guestName").build();
+        guest.setId(1L);
+        Schedule schedule1 = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(3)).endDateTime(LocalDateTime.now().plusHours(4)).build();
+        schedule1.setId(1L);
+        Schedule schedule2 = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(5)).endDateTime(LocalDateTime.now().plusHours(6)).build();
+        schedule2.setId(2L);
+
+        when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest));
+        when(scheduleRepository.findForBookingByIdIn(anyCollection())).thenReturn(Arrays.asList(schedule1, schedule2));
+        when(reservationRepository.findScheduleIdsByScheduleIdInAndReservationStatus(anyCollection(), eq(ReservationStatus.READY_TO_PLAY)))
+                .thenReturn(Collections.singletonList(2L));
+
+        CreateReservationsRequestDTO createReservationsRequestDTO = CreateReservationsRequestDTO
+                .builder().guestId(1L).scheduleIds(Arrays.asList(1L, 2L)).build();
+
+        assertThrows(IllegalArgumentException.class, () -> reservationService.bookReservations(createReservationsRequestDTO));
+        verify(reservationRepository, never()).saveAll(anyIterable());
+    }
+
+    @Test
+    public void bookReservationsScheduleInPast() {
+        Guest guest = Guest.builder().name("guestName").build();
+        guest.setId(1L);
+        Schedule schedule1 = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(3)).endDateTime(LocalDateTime.now().plusHours(4)).build();
+        schedule1.setId(1L);
+        Schedule schedule2 = Schedule.builder().startDateTime(LocalDateTime.now().minusHours(3)).endDateTime(LocalDateTime.now().minusHours(2)).build();
+        schedule2.setId(2L);
+
+        when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest));
+        when(scheduleRepository.findForBookingByIdIn(anyCollection())).thenReturn(Arrays.asList(schedule1, schedule2));
+
+        CreateReservationsRequestDTO createReservationsRequestDTO = CreateReservationsRequestDTO
+                .builder().guestId(1L).scheduleIds(Arrays.asList(1L, 2L)).build();
+
+        assertThrows(IllegalArgumentException.class, () -> reservationService.bookReservations(createReservationsRequestDTO));
+        verify(reservationRepository, never()).saveAll(anyIterable());
+    }
+
+    @Test
+    public void bookReservationsSuccess() {
+        Guest guest = Guest.builder().name("guestName").build();
+        guest.setId(1L);
+        Schedule schedule1 = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(3)).endDateTime(LocalDateTime.now().plusHours(4)).build();
+        schedule1.setId(1L);
+        Schedule schedule2 = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(5)).endDateTime(LocalDateTime.now().plusHours(6)).build();
+        schedule2.setId(2L);
+
+        when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest));
+        when(scheduleRepository.findForBookingByIdIn(anyCollection())).thenReturn(Arrays.asList(schedule1, schedule2));
+        when(reservationRepository.saveAll(anyIterable())).thenAnswer(invocation -> invocation.getArguments()[0]);
+        when(reservationMapper.map(anyList())).thenAnswer(invocation -> {
+            List<ReservationDTO> reservationDTOS = new ArrayList<>();
+            for (Object r : (List) invocation.getArguments()[0]) {
+                Reservation reservation = (Reservation) r;
+                reservationDTOS.add(ReservationDTO.builder().guestId(reservation.getGuest().getId())
+                        .scheduledId(reservation.getSchedule().getId())
+                        .reservationStatus(reservation.getReservationStatus().toString()).build());
+            }
+            return reservationDTOS;
+        });
+
+        CreateReservationsRequestDTO createReservationsRequestDTO = CreateReservationsRequestDTO
+                .builder().guestId(1L).scheduleIds(Arrays.asList(2L, 1L)).build();
+
+        List<ReservationDTO> reservationDTOS = reservationService.bookReservations(createReservationsRequestDTO);
+        assertEquals(2, reservationDTOS.size());
+        assertEquals(2L, reservationDTOS.get(0).getScheduledId());
+        assertEquals(1L, reservationDTOS.get(1).getScheduledId());
+        assertEquals(ReservationStatus.READY_TO_PLAY.toString(), reservationDTOS.get(0).getReservationStatus());
+        verify(scheduleIndex).markBooked(schedule1);
+        verify(scheduleIndex).markBooked(schedule2);
+        verify(courtUsageService).recordBookings(argThat(reservations -> reservations.size() == 2));
     }
 
     @Test
@@ -149,6 +398,23 @@ public class ReservationServiceTest {
         assertThrows(EntityNotFoundException.class, () -> reservationService.findReservation(1L));
     }
 
+    @Test
+    public void findReservationVersionNotFound() {
+        when(reservationRepository.findVersionById(anyLong())).thenReturn(new EntityVersion(0L, null, null, null));
+
+        assertThrows(EntityNotFoundException.class, () -> reservationService.findReservationVersion(1L));
+    }
+
+    @Test
+    public void findReservationVersionSuccess() {
+        LocalDateTime reservationUpdate = LocalDateTime.of(2030, 1, 1, 10, 0);
+        when(reservationRepository.findVersionById(anyLong())).thenReturn(
+                new EntityVersion(1L, reservationUpdate, reservationUpdate.plusMinutes(5), null));
+
+        EntityVersion entityVersion = reservationService.findReservationVersion(1L);
+        assertEquals(reservationUpdate.plusMinutes(5), entityVersion.getLastModified());
+    }
+
     @Test
     public void findReservationSuccess() {
         Reservation reservation = new Reservation();
@@ -162,70 +428,74 @@ public class ReservationServiceTest {
     }
 
     @Test
-    public void findReservationsBetweenTimesNoSchedulesFound() {
-        List<Schedule> schedules = new ArrayList<>();
-        List<Reservation> reservationList = new ArrayList<>();
-
-        Schedule schedule1 = new Schedule();
-        schedule1.setId(1L);
-        Schedule schedule2 = new Schedule();
-        schedule2.setId(2L);
-
-        reservationList.add(Reservation.builder().schedule(schedule1).build());
-
-        when(scheduleRepository.findByStartDateTimeGreaterThanEqualAndEndDateTimeLessThanEqual(
-                any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(schedules);
-        when(reservationRepository.findAll()).thenReturn(reservationList);
-
-        assertTrue(reservationService.findAllReservationsBetweenTimes(
-                LocalDateTime.now(), LocalDateTime.now().plusHours(1)).isEmpty());
+    public void findReservationsBetweenTimesNoReservationsFound() {
+        when(reservationRepository.findAllBetweenTimesAfter(any(LocalDateTime.class), any(LocalDateTime.class),
+                any(LocalDateTime.class), anyLong(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Collections.emptyList()));
+        when(reservationMapper.map(anyList())).thenReturn(Collections.emptyList());
+
+        KeysetPage<ReservationDTO> page = reservationService.findAllReservationsBetweenTimes(
+                LocalDateTime.now(), LocalDateTime.now().plusHours(1), null, 10);
+        assertTrue(page.getContent().isEmpty());
+        assertNull(page.getNextCursor());
     }
 
     @Test
-    public void findReservationsBetweenTimesNoReservationsFound() {
-        List<Schedule> schedules = new ArrayList<>();
-        List<Reservation> reservationList = new ArrayList<>();
+    public void findReservationsBetweenTimesInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> reservationService.findAllReservationsBetweenTimes(
+                LocalDateTime.now(), LocalDateTime.now().plusHours(1), KeysetCursor.of(1L).encode(), 10));
+    }
 
-        Schedule schedule1 = new Schedule();
-        schedule1.setId(1L);
-        Schedule schedule2 = new Schedule();
-        schedule2.setId(2L);
+    @Test
+    public void findReservationsBetweenTimesLimitCapped() {
+        LocalDateTime afterStartDateTime = LocalDateTime.now().plusMinutes(30).withNano(0);
 
-        schedules.add(schedule1);
-        schedules.add(schedule2);
+        when(reservationRepository.findAllBetweenTimesAfter(any(LocalDateTime.class), any(LocalDateTime.class),
+                any(LocalDateTime.class), anyLong(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Collections.emptyList()));
+        when(reservationMapper.map(anyList())).thenReturn(Collections.emptyList());
 
-        when(scheduleRepository.findByStartDateTimeGreaterThanEqualAndEndDateTimeLessThanEqual(
-                any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(schedules);
-        when(reservationRepository.findAll()).thenReturn(reservationList);
+        reservationService.findAllReservationsBetweenTimes(LocalDateTime.now(), LocalDateTime.now().plusHours(1),
+                KeysetCursor.of(afterStartDateTime, 7L).encode(), 100000);
 
-        assertTrue(reservationService.findAllReservationsBetweenTimes(
-                LocalDateTime.now(), LocalDateTime.now().plusHours(1)).isEmpty());
+        verify(reservationRepository).findAllBetweenTimesAfter(any(LocalDateTime.class), any(LocalDateTime.class),
+                eq(afterStartDateTime), eq(7L),
+                argThat(pageable -> pageable.getPageNumber() == 0 && pageable.getPageSize() == KeysetPage.MAX_LIMIT));
     }
 
     @Test
     public void findReservationsBetweenTimesSuccess() {
-        List<Schedule> schedules = new ArrayList<>();
-        List<Reservation> reservationList = new ArrayList<>();
-
-        Schedule schedule1 = new Schedule();
+        LocalDateTime startDateTime = LocalDateTime.now().plusMinutes(10).withNano(0);
+        Schedule schedule1 = Schedule.builder().startDateTime(startDateTime).build();
         schedule1.setId(1L);
-        Schedule schedule2 = new Schedule();
+        Schedule schedule2 = Schedule.builder().startDateTime(startDateTime.plusMinutes(20)).build();
         schedule2.setId(2L);
-        Schedule schedule3 = new Schedule();
-        schedule3.setId(3L);
-
-        schedules.add(schedule1);
-        schedules.add(schedule2);
 
+        List<Reservation> reservationList = new ArrayList<>();
         reservationList.add(Reservation.builder().schedule(schedule1).build());
-        reservationList.add(Reservation.builder().schedule(schedule3).build());
+        reservationList.add(Reservation.builder().schedule(schedule2).build());
+        reservationList.get(0).setId(1L);
+        reservationList.get(1).setId(2L);
+
+        when(reservationRepository.findAllBetweenTimesAfter(any(LocalDateTime.class), any(LocalDateTime.class),
+                any(LocalDateTime.class), eq(0L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(reservationList, PageRequest.of(0, 2), true));
+        when(reservationMapper.map(anyList())).thenAnswer(invocation -> {
+            List<ReservationDTO> reservationDTOS = new ArrayList<>();
+            for (Object r : (List) invocation.getArguments()[0]) {
+                reservationDTOS.add(ReservationDTO.builder().scheduledId(((Reservation) r).getSchedule().getId()).build());
+            }
+            return reservationDTOS;
+        });
 
-        when(scheduleRepository.findByStartDateTimeGreaterThanEqualAndEndDateTimeLessThanEqual(
-                any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(schedules);
-        when(reservationRepository.findAll()).thenReturn(reservationList);
+        KeysetPage<ReservationDTO> page = reservationService.findAllReservationsBetweenTimes(
+                LocalDateTime.now(), LocalDateTime.now().plusHours(1), null, 2);
+        assertEquals(2, page.getContent().size());
+        assertEquals(1L, page.getContent().get(0).getScheduledId());
 
-        assertEquals(1, reservationService.findAllReservationsBetweenTimes(
-                LocalDateTime.now(), LocalDateTime.now().plusHours(1)).size());
+        KeysetCursor nextCursor = KeysetCursor.decode(page.getNextCursor());
+        assertEquals(schedule2.getStartDateTime(), nextCursor.getDateTime());
+        assertEquals(2L, nextCursor.getId());
     }
 
     @Test
@@ -270,6 +540,171 @@ public class ReservationServiceTest {
         ReservationDTO reservationDTO = reservationService.cancelReservation(1L);
         assertEquals(1L, reservationDTO.getId());
         assertEquals(ReservationStatus.CANCELLED.toString(), reservationDTO.getReservationStatus());
+        verify(scheduleIndex).markFree(any(Schedule.class));
+        verify(courtUsageService).recordCancellation(any(Reservation.class));
+    }
+
+    @Test
+    public void cancelReservationScheduleStillBooked() {
+        when(reservationRepository.findById(anyLong())).thenReturn(Optional.of(
+                Reservation.builder().reservationStatus(ReservationStatus.READY_TO_PLAY).value(BigDecimal.TEN)
+                        .schedule(Schedule.builder().startDateTime(LocalDateTime.now().plusHours(1)).build()).build()));
+        when(reservationRepository.save(any(Reservation.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+        when(reservationRepository.existsBySchedule_IdAndReservationStatus(any(), eq(ReservationStatus.READY_TO_PLAY))).thenReturn(true);
+
+        reservationService.cancelReservation(1L);
+        verify(scheduleIndex, never()).markFree(any(Schedule.class));
+    }
+
+    @Test
+    public void cancelReservationBumpsScheduleVersion() {
+        Schedule schedule = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(1)).build();
+        schedule.setId(1L);
+
+        when(reservationRepository.findById(anyLong())).thenReturn(Optional.of(
+                Reservation.builder().reservationStatus(ReservationStatus.READY_TO_PLAY).value(BigDecimal.TEN).schedule(schedule).build()));
+        when(reservationRepository.save(any(Reservation.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+        when(waitlistService.findNextWaiting(schedule)).thenReturn(Optional.empty());
+
+        reservationService.cancelReservation(1L);
+
+        verify(entityManager).lock(schedule, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+        verify(scheduleRepository, never()).findForBookingById(anyLong());
+        verify(scheduleIndex).markFree(schedule);
+    }
+
+    @Test
+    public void cancelReservationPromotesNextWaiter() {
+        Schedule schedule = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(1)).build();
+        schedule.setId(1L);
+        Guest waitingGuest = new Guest();
+        waitingGuest.setId(2L);
+        WaitlistEntry waitlistEntry = WaitlistEntry.builder().guest(waitingGuest).schedule(schedule).build();
+
+        when(reservationRepository.findById(anyLong())).thenReturn(Optional.of(
+                Reservation.builder().reservationStatus(ReservationStatus.READY_TO_PLAY).value(BigDecimal.TEN).schedule(schedule).build()));
+        when(reservationRepository.save(any(Reservation.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+        when(waitlistService.findNextWaiting(schedule)).thenReturn(Optional.of(waitlistEntry));
+
+        reservationService.cancelReservation(1L);
+
+        verify(entityManager).lock(schedule, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+        verify(waitlistService).markPromoted(eq(waitlistEntry), argThat(reservation -> reservation.getGuest() == waitingGuest
+                && ReservationStatus.READY_TO_PLAY.equals(reservation.getReservationStatus())));
+        verify(courtUsageService).recordBookings(argThat(reservations -> reservations.size() == 1));
+        verify(scheduleIndex, never()).markFree(any(Schedule.class));
+    }
+
+    @Test
+    public void checkInReservationNotReadyToPlay() {
+        when(reservationRepository.findById(anyLong())).thenReturn(Optional.of(
+                Reservation.builder().reservationStatus(ReservationStatus.CANCELLED).build()));
+
+        assertThrows(IllegalArgumentException.class, () -> reservationService.checkInReservation(1L));
+    }
+
+    @Test
+    public void checkInReservationTooEarly() {
+        when(reservationRepository.findById(anyLong())).thenReturn(Optional.of(
+                Reservation.builder().reservationStatus(ReservationStatus.READY_TO_PLAY)
+                        .schedule(Schedule.builder().startDateTime(LocalDateTime.now().plusHours(2))
+                                .endDateTime(LocalDateTime.now().plusHours(3)).build()).build()));
+
+        assertThrows(IllegalArgumentException.class, () -> reservationService.checkInReservation(1L));
+        verify(reservationRepository, never()).save(any(Reservation.class));
+    }
+
+    @Test
+    public void checkInReservationSuccess() {
+        when(reservationRepository.findById(anyLong())).thenReturn(Optional.of(
+                Reservation.builder().reservationStatus(ReservationStatus.READY_TO_PLAY)
+                        .schedule(Schedule.builder().startDateTime(LocalDateTime.now().minusMinutes(10))
+                                .endDateTime(LocalDateTime.now().plusMinutes(50)).build()).build()));
+        when(reservationRepository.save(any(Reservation.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+        when(reservationMapper.map(any(Reservation.class))).thenAnswer(invocation -> ReservationDTO.builder()
+                .checkInDateTime(((Reservation) invocation.getArguments()[0]).getCheckInDateTime()).build());
+
+        assertNotNull(reservationService.checkInReservation(1L).getCheckInDateTime());
+    }
+
+    @Test
+    public void cancelReservationsForClosureInvalidPeriod() {
+        LocalDateTime startDateTime = LocalDateTime.now().plusDays(1);
+
+        assertThrows(IllegalArgumentException.class, () -> reservationService.cancelReservationsForClosure(1L, startDateTime, startDateTime));
+    }
+
+    @Test
+    public void cancelReservationsForClosureNoSchedules() {
+        when(scheduleRepository.findForClosureByTennisCourtIdBetweenTimes(anyLong(), any(LocalDateTime.class),
+                any(LocalDateTime.class))).thenReturn(new ArrayList<>());
+
+        reservationService.cancelReservationsForClosure(1L, LocalDateTime.now(), LocalDateTime.now().plusDays(1));
+        verify(reservationRepository, never()).saveAll(anyIterable());
+        verify(waitlistService, never()).cancelWaiting(anyCollection());
+    }
+
+    @Test
+    public void cancelReservationsForClosureNothingBooked() {
+        Schedule free = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(30)).build();
+        free.setId(1L);
+
+        when(scheduleRepository.findForClosureByTennisCourtIdBetweenTimes(eq(1L), any(LocalDateTime.class),
+                any(LocalDateTime.class))).thenReturn(Collections.singletonList(free));
+        when(reservationRepository.findByTennisCourtIdBetweenTimesAndReservationStatus(anyLong(), any(LocalDateTime.class),
+                any(LocalDateTime.class), eq(ReservationStatus.READY_TO_PLAY))).thenReturn(new ArrayList<>());
+        when(reservationRepository.saveAll(anyIterable())).thenAnswer(invocation -> invocation.getArguments()[0]);
+
+        assertTrue(reservationService.cancelReservationsForClosure(1L, LocalDateTime.now(), LocalDateTime.now().plusDays(2)).isEmpty());
+        assertTrue(free.isClosed());
+        verify(waitlistService).cancelWaiting(Collections.singletonList(1L));
+        verify(scheduleIndex).markClosed(free);
+    }
+
+    @Test
+    public void cancelReservationsForClosureSuccess() {
+        Schedule tomorrow = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(30)).build();
+        tomorrow.setId(1L);
+        Schedule soon = Schedule.builder().startDateTime(LocalDateTime.now().plusHours(3)).build();
+        soon.setId(2L);
+        List<Reservation> reservations = Arrays.asList(
+                Reservation.builder().schedule(tomorrow).reservationStatus(ReservationStatus.READY_TO_PLAY).value(BigDecimal.TEN).build(),
+                Reservation.builder().schedule(tomorrow).reservationStatus(ReservationStatus.READY_TO_PLAY).value(BigDecimal.TEN).build(),
+                Reservation.builder().schedule(soon).reservationStatus(ReservationStatus.READY_TO_PLAY).value(BigDecimal.TEN).build());
+
+        when(scheduleRepository.findForClosureByTennisCourtIdBetweenTimes(eq(1L), any(LocalDateTime.class),
+                any(LocalDateTime.class))).thenReturn(Arrays.asList(soon, tomorrow));
+        when(reservationRepository.findByTennisCourtIdBetweenTimesAndReservationStatus(eq(1L), any(LocalDateTime.class),
+                any(LocalDateTime.class), eq(ReservationStatus.READY_TO_PLAY))).thenReturn(reservations);
+        when(reservationRepository.saveAll(anyIterable())).thenAnswer(invocation -> invocation.getArguments()[0]);
+
+        reservationService.cancelReservationsForClosure(1L, LocalDateTime.now().minusHours(1), LocalDateTime.now().plusDays(2));
+
+        assertTrue(reservations.stream().allMatch(r -> ReservationStatus.CANCELLED.equals(r.getReservationStatus())));
+        assertEquals(0, BigDecimal.TEN.compareTo(reservations.get(0).getRefundValue()));
+        assertEquals(0, BigDecimal.TEN.compareTo(reservations.get(1).getRefundValue()));
+        assertEquals(0, BigDecimal.valueOf(5).compareTo(reservations.get(2).getRefundValue()));
+        assertEquals(0, BigDecimal.valueOf(5).compareTo(reservations.get(2).getValue()));
+        verify(reservationRepository).findByTennisCourtIdBetweenTimesAndReservationStatus(eq(1L),
+                argThat(from -> !from.isBefore(LocalDateTime.now().minusMinutes(1))), any(LocalDateTime.class), eq(ReservationStatus.READY_TO_PLAY));
+        verify(scheduleRepository).findForClosureByTennisCourtIdBetweenTimes(eq(1L),
+                argThat(from -> !from.isBefore(LocalDateTime.now().minusMinutes(1))), any(LocalDateTime.class));
+        assertTrue(tomorrow.isClosed() && soon.isClosed());
+        verify(courtUsageService).recordCancellations(reservations);
+        verify(waitlistService).cancelWaiting(Arrays.asList(2L, 1L));
+        verify(scheduleIndex).markClosed(tomorrow);
+        verify(scheduleIndex).markClosed(soon);
+        verify(scheduleIndex, never()).markFree(any(Schedule.class));
+    }
+
+    @Test
+    public void getRefundValueUsesGivenClock() {
+        Schedule schedule = new Schedule();
+        schedule.setStartDateTime(LocalDateTime.of(2030, 1, 2, 10, 0));
+        Reservation reservation = Reservation.builder().schedule(schedule).value(BigDecimal.TEN).build();
+
+        assertEquals(0, BigDecimal.TEN.compareTo(reservationService.getRefundValue(reservation, LocalDateTime.of(2030, 1, 1, 10, 0))));
+        assertEquals(0, BigDecimal.valueOf(2.5).compareTo(reservationService.getRefundValue(reservation, LocalDateTime.of(2030, 1, 2, 9, 0))));
     }
 
     @Test
@@ -385,7 +820,7 @@ public class ReservationServiceTest {
         oldReservation.setId(1L);
 
         when(reservationRepository.findById(anyLong())).thenReturn(Optional.of(oldReservation));
-        when(scheduleRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class, () -> reservationService.rescheduleReservation(1L, 2L));
     }
@@ -411,7 +846,7 @@ public class ReservationServiceTest {
         oldReservation.setId(1L);
 
         when(reservationRepository.findById(anyLong())).thenReturn(Optional.of(oldReservation));
-        when(scheduleRepository.findById(anyLong())).thenReturn(Optional.of(newSchedule));
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.of(newSchedule));
 
         assertThrows(IllegalArgumentException.class, () -> reservationService.rescheduleReservation(1L, 2L));
     }
@@ -437,7 +872,7 @@ public class ReservationServiceTest {
         oldReservation.setId(1L);
 
         when(reservationRepository.findById(anyLong())).thenReturn(Optional.of(oldReservation));
-        when(scheduleRepository.findById(anyLong())).thenReturn(Optional.of(newSchedule));
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.of(newSchedule));
 
         assertThrows(IllegalArgumentException.class, () -> reservationService.rescheduleReservation(1L, 2L));
     }
@@ -463,8 +898,9 @@ public class ReservationServiceTest {
         oldReservation.setId(1L);
 
         when(reservationRepository.findById(anyLong())).thenReturn(Optional.of(oldReservation));
-        when(scheduleRepository.findById(anyLong())).thenReturn(Optional.of(newSchedule));
-        when(reservationRepository.findBySchedule_Id(anyLong())).thenReturn(Collections.singletonList(oldReservation));
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.of(newSchedule));
+        when(reservationRepository.existsBySchedule_IdAndGuest_IdAndReservationStatus(anyLong(), anyLong(), eq(ReservationStatus.READY_TO_PLAY)))
+                .thenReturn(true);
 
         assertThrows(IllegalArgumentException.class, () -> reservationService.rescheduleReservation(1L, 2L));
     }
@@ -490,8 +926,7 @@ public class ReservationServiceTest {
         oldReservation.setId(1L);
 
         when(reservationRepository.findById(anyLong())).thenReturn(Optional.of(oldReservation));
-        when(scheduleRepository.findById(anyLong())).thenReturn(Optional.of(newSchedule));
-        when(reservationRepository.findBySchedule_Id(anyLong())).thenReturn(Collections.emptyList());
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.of(newSchedule));
 
         assertThrows(IllegalArgumentException.class, () -> reservationService.rescheduleReservation(1L, 2L));
     }
@@ -517,8 +952,7 @@ public class ReservationServiceTest {
         oldReservation.setId(1L);
 
         when(reservationRepository.findById(anyLong())).thenReturn(Optional.of(oldReservation));
-        when(scheduleRepository.findById(anyLong())).thenReturn(Optional.of(newSchedule));
-        when(reservationRepository.findBySchedule_Id(anyLong())).thenReturn(Collections.emptyList());
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.of(newSchedule));
         when(reservationRepository.saveAll(anyIterable()))
                 .thenAnswer(invocation -> invocation.getArguments()[0]);
         when(reservationMapper.map(any(Reservation.class))).thenAnswer(invocation -> {
@@ -536,5 +970,9 @@ public class ReservationServiceTest {
         assertEquals(ReservationStatus.RESCHEDULED.toString(), reservationDTO.getPreviousReservation().getReservationStatus());
         assertEquals(ReservationStatus.READY_TO_PLAY.toString(), reservationDTO.getReservationStatus());
         assertEquals(1L, reservationDTO.getPreviousReservation().getId());
+        verify(scheduleIndex).markFree(oldSchedule);
+        verify(scheduleIndex).markBooked(newSchedule);
+        verify(courtUsageService).recordReschedule(any(Reservation.class));
+        verify(courtUsageService).recordBookings(argThat(reservations -> reservations.size() == 1));
     }
 }
\ No newline at end of file
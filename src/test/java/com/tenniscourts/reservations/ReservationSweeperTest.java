@@ -0,0 +1,151 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.analytics.CourtUsageService;
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.waitlist.WaitlistEntry;
+import com.tenniscourts.waitlist.WaitlistService;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@RunWith(MockitoJUnitRunner.class)
+public class ReservationSweeperTest {
+    @Mock
+    ReservationRepository reservationRepository;
+
+    @Mock
+    CourtUsageService courtUsageService;
+
+    @Mock
+    WaitlistService waitlistService;
+
+    @Test
+    public void sweepCompletesCheckedInAndMarksNoShows() {
+        Reservation checkedIn = reservation(1L);
+        checkedIn.setCheckInDateTime(LocalDateTime.now().minusHours(3));
+        Reservation noShow = reservation(2L);
+
+        when(reservationRepository.findEndedByReservationStatusAfter(eq(ReservationStatus.READY_TO_PLAY),
+                any(LocalDateTime.class), eq(0L), any(Pageable.class))).thenReturn(Arrays.asList(checkedIn, noShow));
+        when(reservationRepository.findEndedByReservationStatusAfter(eq(ReservationStatus.READY_TO_PLAY),
+                any(LocalDateTime.class), eq(2L), any(Pageable.class))).thenReturn(Collections.emptyList());
+
+        assertEquals(2, sweeper(10).sweep());
+
+        assertEquals(ReservationStatus.COMPLETED, checkedIn.getReservationStatus());
+        assertEquals(BigDecimal.TEN, checkedIn.getRefundValue());
+        assertEquals(BigDecimal.ZERO, checkedIn.getValue());
+        assertEquals(ReservationStatus.NO_SHOW, noShow.getReservationStatus());
+        assertEquals(BigDecimal.ZERO, noShow.getRefundValue());
+        assertEquals(BigDecimal.TEN, noShow.getValue());
+        verify(courtUsageService).recordCompletions(Arrays.asList(checkedIn, noShow));
+    }
+
+    @Test
+    public void sweepWalksChunksById() {
+        when(reservationRepository.findEndedByReservationStatusAfter(eq(ReservationStatus.READY_TO_PLAY),
+                any(LocalDateTime.class), eq(0L), any(Pageable.class))).thenReturn(Arrays.asList(reservation(1L), reservation(2L)));
+        when(reservationRepository.findEndedByReservationStatusAfter(eq(ReservationStatus.READY_TO_PLAY),
+                any(LocalDateTime.class), eq(2L), any(Pageable.class))).thenReturn(Collections.singletonList(reservation(5L)));
+        when(reservationRepository.findEndedByReservationStatusAfter(eq(ReservationStatus.READY_TO_PLAY),
+                any(LocalDateTime.class), eq(5L), any(Pageable.class))).thenReturn(Collections.emptyList());
+
+        assertEquals(3, sweeper(2).sweep());
+    }
+
+    @Test
+    public void sweepSkipsChunkThatLostARace() {
+        when(reservationRepository.findEndedByReservationStatusAfter(eq(ReservationStatus.READY_TO_PLAY),
+                any(LocalDateTime.class), eq(0L), any(Pageable.class))).thenReturn(Arrays.asList(reservation(1L), reservation(2L)));
+        when(reservationRepository.findEndedByReservationStatusAfter(eq(ReservationStatus.READY_TO_PLAY),
+                any(LocalDateTime.class), eq(2L), any(Pageable.class))).thenReturn(Collections.singletonList(reservation(3L)));
+        when(reservationRepository.findEndedByReservationStatusAfter(eq(ReservationStatus.READY_TO_PLAY),
+                any(LocalDateTime.class), eq(3L), any(Pageable.class))).thenReturn(Collections.emptyList());
+        when(reservationRepository.saveAll(anyIterable()))
+                .thenThrow(new OptimisticLockingFailureException("Checked in meanwhile."))
+                .thenAnswer(invocation -> invocation.getArguments()[0]);
+
+        assertEquals(1, sweeper(2).sweep());
+    }
+
+    @Test
+    public void sweepSkipsChunkThatLostTheRollupRace() {
+        when(reservationRepository.findEndedByReservationStatusAfter(eq(ReservationStatus.READY_TO_PLAY),
+                any(LocalDateTime.class), eq(0L), any(Pageable.class))).thenReturn(Arrays.asList(reservation(1L), reservation(2L)));
+        when(reservationRepository.findEndedByReservationStatusAfter(eq(ReservationStatus.READY_TO_PLAY),
+                any(LocalDateTime.class), eq(2L), any(Pageable.class))).thenReturn(Collections.singletonList(reservation(3L)));
+        when(reservationRepository.findEndedByReservationStatusAfter(eq(ReservationStatus.READY_TO_PLAY),
+                any(LocalDateTime.class), eq(3L), any(Pageable.class))).thenReturn(Collections.emptyList());
+        doThrow(new DataIntegrityViolationException("uk_court_daily_usage_court_day")).doNothing()
+                .when(courtUsageService).recordCompletions(anyList());
+
+        assertEquals(1, sweeper(2).sweep());
+    }
+
+    @Test
+    public void sweepStopsOnOtherIntegrityViolation() {
+        when(reservationRepository.findEndedByReservationStatusAfter(eq(ReservationStatus.READY_TO_PLAY),
+                any(LocalDateTime.class), eq(0L), any(Pageable.class))).thenReturn(Arrays.asList(reservation(1L), reservation(2L)));
+        doThrow(new DataIntegrityViolationException("NULL not allowed for column \"TENNIS_COURT_ID\""))
+                .when(courtUsageService).recordCompletions(anyList());
+
+        assertThrows(DataIntegrityViolationException.class, () -> sweeper(2).sweep());
+    }
+
+    @Test
+    public void sweepExpiresWaitlistEntriesOfStartedSchedules() {
+        when(waitlistService.expireStarted(any(LocalDateTime.class), eq(0L), eq(2))).thenReturn(Arrays.asList(waitlistEntry(3L), waitlistEntry(4L)));
+        when(waitlistService.expireStarted(any(LocalDateTime.class), eq(4L), eq(2))).thenReturn(Collections.singletonList(waitlistEntry(7L)));
+        when(waitlistService.expireStarted(any(LocalDateTime.class), eq(7L), eq(2))).thenReturn(Collections.emptyList());
+
+        assertEquals(3, sweeper(2).sweep());
+    }
+
+    @Test
+    public void sweepSkipsWaitlistChunkThatLostARace() {
+        when(waitlistService.expireStarted(any(LocalDateTime.class), eq(0L), anyInt()))
+                .thenThrow(new OptimisticLockingFailureException("Promoted meanwhile."));
+
+        assertEquals(0, sweeper(2).sweep());
+    }
+
+    private ReservationSweeper sweeper(int chunkSize) {
+        return new ReservationSweeper(reservationRepository, courtUsageService, waitlistService, TransactionOperations.withoutTransaction(), chunkSize, 60);
+    }
+
+    private Reservation reservation(Long id) {
+        Reservation reservation = Reservation.builder().schedule(new Schedule()).reservationStatus(ReservationStatus.READY_TO_PLAY)
+                .value(BigDecimal.TEN).refundValue(BigDecimal.ZERO).build();
+        reservation.setId(id);
+        return reservation;
+    }
+
+    private WaitlistEntry waitlistEntry(Long id) {
+        WaitlistEntry waitlistEntry = WaitlistEntry.builder().build();
+        waitlistEntry.setId(id);
+        return waitlistEntry;
+    }
+}
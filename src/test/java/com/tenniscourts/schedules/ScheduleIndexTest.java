@@ -0,0 +1,149 @@
+package com.tenniscourts.schedules;
+
+import com.tenniscourts.reservations.ReservationRepository;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@RunWith(MockitoJUnitRunner.class)
+public class ScheduleIndexTest {
+
+    private static final LocalDateTime TEN_O_CLOCK = LocalDateTime.of(2030, 1, 1, 10, 0);
+
+    @Mock
+    ScheduleRepository scheduleRepository;
+
+    @Mock
+    ReservationRepository reservationRepository;
+
+    @Mock
+    ScheduleRangeCache scheduleRangeCache;
+
+    @InjectMocks
+    ScheduleIndex scheduleIndex;
+
+    @Test
+    public void overlapsLoadsCourtOnlyOnce() {
+        when(scheduleRepository.findSlotsByTennisCourtId(anyLong())).thenReturn(Collections.emptyList());
+
+        assertFalse(scheduleIndex.overlaps(1L, TEN_O_CLOCK, TEN_O_CLOCK.plusHours(1)));
+        assertFalse(scheduleIndex.overlaps(1L, TEN_O_CLOCK, TEN_O_CLOCK.plusHours(1)));
+        verify(scheduleRepository, times(1)).findSlotsByTennisCourtId(1L);
+    }
+
+    @Test
+    public void overlapsExistingSlot() {
+        when(scheduleRepository.findSlotsByTennisCourtId(anyLong())).thenReturn(Collections.singletonList(
+                new ScheduleSlot(1L, TEN_O_CLOCK, TEN_O_CLOCK.plusHours(1))));
+
+        assertTrue(scheduleIndex.overlaps(1L, TEN_O_CLOCK, TEN_O_CLOCK.plusHours(1)));
+        assertTrue(scheduleIndex.overlaps(1L, TEN_O_CLOCK.minusMinutes(30), TEN_O_CLOCK.plusMinutes(30)));
+        assertTrue(scheduleIndex.overlaps(1L, TEN_O_CLOCK.plusMinutes(30), TEN_O_CLOCK.plusMinutes(90)));
+    }
+
+    @Test
+    public void overlapsAdjacentSlots() {
+        when(scheduleRepository.findSlotsByTennisCourtId(anyLong())).thenReturn(Collections.singletonList(
+                new ScheduleSlot(1L, TEN_O_CLOCK, TEN_O_CLOCK.plusHours(1))));
+
+        assertFalse(scheduleIndex.overlaps(1L, TEN_O_CLOCK.minusHours(1), TEN_O_CLOCK));
+        assertFalse(scheduleIndex.overlaps(1L, TEN_O_CLOCK.plusHours(1), TEN_O_CLOCK.plusHours(2)));
+    }
+
+    @Test
+    public void overlapsAddedSchedule() {
+        when(scheduleRepository.findSlotsByTennisCourtId(anyLong())).thenReturn(Collections.emptyList());
+
+        TennisCourt tennisCourt = new TennisCourt();
+        tennisCourt.setId(1L);
+        Schedule schedule = Schedule.builder().tennisCourt(tennisCourt)
+                .startDateTime(TEN_O_CLOCK).endDateTime(TEN_O_CLOCK.plusHours(1)).build();
+        schedule.setId(1L);
+
+        scheduleIndex.add(schedule);
+
+        assertTrue(scheduleIndex.overlaps(1L, TEN_O_CLOCK.plusMinutes(59), TEN_O_CLOCK.plusHours(2)));
+        assertFalse(scheduleIndex.overlaps(2L, TEN_O_CLOCK, TEN_O_CLOCK.plusHours(1)));
+        verify(scheduleRangeCache).evict(TEN_O_CLOCK.toLocalDate());
+    }
+
+    @Test
+    public void findFreeSlotsSkipsBookedSlots() {
+        when(scheduleRepository.findSlotsByTennisCourtId(anyLong())).thenReturn(Arrays.asList(
+                new ScheduleSlot(1L, TEN_O_CLOCK, TEN_O_CLOCK.plusHours(1)),
+                new ScheduleSlot(2L, TEN_O_CLOCK.plusHours(1), TEN_O_CLOCK.plusHours(2)),
+                new ScheduleSlot(3L, TEN_O_CLOCK.plusHours(2), TEN_O_CLOCK.plusHours(3))));
+        when(reservationRepository.findScheduleStartDateTimesByTennisCourtIdAndReservationStatus(anyLong(), eq(ReservationStatus.READY_TO_PLAY)))
+                .thenReturn(Collections.singletonList(TEN_O_CLOCK.plusHours(1)));
+
+        List<ScheduleSlot> freeSlots = scheduleIndex.findFreeSlots(1L, TEN_O_CLOCK, TEN_O_CLOCK.plusHours(3));
+        assertEquals(2, freeSlots.size());
+        assertEquals(1L, freeSlots.get(0).getId());
+        assertEquals(3L, freeSlots.get(1).getId());
+    }
+
+    @Test
+    public void findFreeSlotsSkipsClosedSlots() {
+        when(scheduleRepository.findSlotsByTennisCourtId(anyLong())).thenReturn(Arrays.asList(
+                new ScheduleSlot(1L, TEN_O_CLOCK, TEN_O_CLOCK.plusHours(1)),
+                new ScheduleSlot(2L, TEN_O_CLOCK.plusHours(1), TEN_O_CLOCK.plusHours(2))));
+        when(scheduleRepository.findClosedStartDateTimesByTennisCourtId(anyLong()))
+                .thenReturn(Collections.singletonList(TEN_O_CLOCK));
+
+        List<ScheduleSlot> freeSlots = scheduleIndex.findFreeSlots(1L, TEN_O_CLOCK, TEN_O_CLOCK.plusHours(2));
+        assertEquals(1, freeSlots.size());
+        assertEquals(2L, freeSlots.get(0).getId());
+    }
+
+    @Test
+    public void findFreeSlotsFollowsBookings() {
+        when(scheduleRepository.findSlotsByTennisCourtId(anyLong())).thenReturn(Collections.singletonList(
+                new ScheduleSlot(1L, TEN_O_CLOCK, TEN_O_CLOCK.plusHours(1))));
+
+        TennisCourt tennisCourt = new TennisCourt();
+        tennisCourt.setId(1L);
+        Schedule schedule = Schedule.builder().tennisCourt(tennisCourt)
+                .startDateTime(TEN_O_CLOCK).endDateTime(TEN_O_CLOCK.plusHours(1)).build();
+        schedule.setId(1L);
+
+        scheduleIndex.markBooked(schedule);
+        assertTrue(scheduleIndex.findFreeSlots(1L, TEN_O_CLOCK, TEN_O_CLOCK.plusDays(1)).isEmpty());
+
+        scheduleIndex.markFree(schedule);
+        assertEquals(1, scheduleIndex.findFreeSlots(1L, TEN_O_CLOCK, TEN_O_CLOCK.plusDays(1)).size());
+        verify(scheduleRangeCache, times(2)).evict(TEN_O_CLOCK.toLocalDate());
+    }
+
+    @Test
+    public void findFreeSlotsOnlyWithinPeriod() {
+        when(scheduleRepository.findSlotsByTennisCourtId(anyLong())).thenReturn(Arrays.asList(
+                new ScheduleSlot(1L, TEN_O_CLOCK.minusHours(1), TEN_O_CLOCK),
+                new ScheduleSlot(2L, TEN_O_CLOCK, TEN_O_CLOCK.plusHours(1)),
+                new ScheduleSlot(3L, TEN_O_CLOCK.plusHours(1), TEN_O_CLOCK.plusHours(2))));
+
+        List<ScheduleSlot> freeSlots = scheduleIndex.findFreeSlots(1L, TEN_O_CLOCK, TEN_O_CLOCK.plusMinutes(90));
+        assertEquals(1, freeSlots.size());
+        assertEquals(2L, freeSlots.get(0).getId());
+    }
+}
@@ -0,0 +1,143 @@
+package com.tenniscourts.schedules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tenniscourts.config.pagination.KeysetPage;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.springframework.util.DigestUtils;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ScheduleRangeCacheTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2030, 1, 7);
+    private static final LocalDate SUNDAY = MONDAY.plusDays(6);
+
+    ScheduleRangeCache scheduleRangeCache = new ScheduleRangeCache(new ObjectMapper(), 10, 60);
+
+    AtomicInteger loads = new AtomicInteger();
+
+    Supplier<KeysetPage<ScheduleDTO>> loader = () -> {
+        loads.incrementAndGet();
+        return new KeysetPage<>(Collections.singletonList(ScheduleDTO.builder().id(1L).build()), null);
+    };
+
+    @Test
+    public void getLoadsOncePerWindow() {
+        ScheduleRangeCache.Entry first = scheduleRangeCache.get(MONDAY, SUNDAY, null, 100, loader);
+        ScheduleRangeCache.Entry second = scheduleRangeCache.get(MONDAY, SUNDAY, null, 100, loader);
+        scheduleRangeCache.get(MONDAY, SUNDAY, null, 5, loader);
+
+        assertSame(first, second);
+        assertEquals(2, loads.get());
+        assertEquals(DigestUtils.md5DigestAsHex(first.getBody()), first.getVersion().getETag());
+    }
+
+    @Test
+    public void getNormalizesLimit() {
+        scheduleRangeCache.get(MONDAY, SUNDAY, null, 10000, loader);
+        scheduleRangeCache.get(MONDAY, SUNDAY, null, KeysetPage.MAX_LIMIT, loader);
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void getCoalescesConcurrentMisses() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<KeysetPage<ScheduleDTO>> slowLoader = () -> {
+            loading.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader.get();
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<ScheduleRangeCache.Entry> first = executor.submit(() -> scheduleRangeCache.get(MONDAY, SUNDAY, null, 100, slowLoader));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<ScheduleRangeCache.Entry> second = executor.submit(() -> scheduleRangeCache.get(MONDAY, SUNDAY, null, 100, slowLoader));
+            Future<ScheduleRangeCache.Entry> third = executor.submit(() -> scheduleRangeCache.get(MONDAY, SUNDAY, null, 100, slowLoader));
+            release.countDown();
+
+            assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+            assertSame(first.get(), third.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void getDoesNotCacheFailures() {
+        assertThrows(IllegalStateException.class, () -> scheduleRangeCache.get(MONDAY, SUNDAY, null, 100, () -> {
+            throw new IllegalStateException("Database down.");
+        }));
+
+        scheduleRangeCache.get(MONDAY, SUNDAY, null, 100, loader);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void evictOnlyWindowsCoveringDay() {
+        scheduleRangeCache.get(MONDAY, SUNDAY, null, 100, loader);
+        scheduleRangeCache.get(SUNDAY.plusDays(1), SUNDAY.plusDays(7), null, 100, loader);
+        scheduleRangeCache.get(SUNDAY, SUNDAY.plusDays(7), null, 100, loader);
+
+        scheduleRangeCache.evict(SUNDAY);
+
+        assertEquals(1, scheduleRangeCache.size());
+        scheduleRangeCache.get(SUNDAY.plusDays(1), SUNDAY.plusDays(7), null, 100, loader);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void getDropsOldestWhenFull() {
+        for (int i = 0; i < 15; i++) {
+            scheduleRangeCache.get(MONDAY.plusDays(i), MONDAY.plusDays(i), null, 100, loader);
+        }
+
+        assertEquals(10, scheduleRangeCache.size());
+        scheduleRangeCache.get(MONDAY.plusDays(14), MONDAY.plusDays(14), null, 100, loader);
+        assertEquals(15, loads.get());
+    }
+
+    @Test
+    public void getReloadsExpiredWindow() {
+        ScheduleRangeCache expiring = new ScheduleRangeCache(new ObjectMapper(), 10, 0);
+        expiring.get(MONDAY, SUNDAY, null, 100, loader);
+        expiring.get(MONDAY, SUNDAY, null, 100, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void getKeepsWindowReloadedAfterEviction() {
+        ScheduleRangeCache small = new ScheduleRangeCache(new ObjectMapper(), 2, 60);
+        small.get(MONDAY, MONDAY, null, 100, loader);
+        small.get(SUNDAY, SUNDAY, null, 100, loader);
+        small.evict(SUNDAY);
+        small.get(MONDAY.plusDays(1), MONDAY.plusDays(1), null, 100, loader);
+        small.get(SUNDAY, SUNDAY, null, 100, loader);
+        small.get(MONDAY.plusDays(2), MONDAY.plusDays(2), null, 100, loader);
+
+        assertEquals(2, small.size());
+        small.get(SUNDAY, SUNDAY, null, 100, loader);
+        assertEquals(5, loads.get());
+    }
+}
@@ -1,27 +1,45 @@
 package com.tenniscourts.schedules;
 
+import com.tenniscourts.analytics.CourtUsageService;
+import com.tenniscourts.config.metrics.BookingMetrics;
 import com.tenniscourts.exceptions.EntityNotFoundException;
 import com.tenniscourts.reservations.ReservationService;
 import com.tenniscourts.tenniscourts.TennisCourt;
 import com.tenniscourts.tenniscourts.TennisCourtRepository;
+import com.tenniscourts.config.persistence.EntityVersion;
+import com.tenniscourts.config.persistence.OptimisticRetryExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.MethodSorters;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
@@ -38,6 +56,18 @@ public class ScheduleServiceTest {
     @Mock
     ScheduleMapper scheduleMapper;
 
+    @Mock
+    ScheduleIndex scheduleIndex;
+
+    @Mock
+    CourtUsageService courtUsageService;
+
+    @Spy
+    OptimisticRetryExecutor optimisticRetryExecutor = new OptimisticRetryExecutor(TransactionOperations.withoutTransaction());
+
+    @Spy
+    BookingMetrics bookingMetrics = new BookingMetrics(new SimpleMeterRegistry());
+
     @InjectMocks
     ScheduleService scheduleService;
 
@@ -56,24 +86,27 @@ public class ScheduleServiceTest {
         createScheduleRequestDTO.setStartDateTime(LocalDateTime.now().plusHours(1));
         createScheduleRequestDTO.setTennisCourtId(1L);
 
+        when(scheduleIndex.overlaps(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class, () -> scheduleService.addSchedule(1L, createScheduleRequestDTO));
+    }
+
+    @Test
+    public void addScheduleOverlappingStoredSchedule() {
+        LocalDateTime startDateTime = LocalDateTime.now().plusHours(1);
+        CreateScheduleRequestDTO createScheduleRequestDTO = new CreateScheduleRequestDTO();
+        createScheduleRequestDTO.setStartDateTime(startDateTime);
+        createScheduleRequestDTO.setTennisCourtId(1L);
+
         TennisCourt tennisCourt = new TennisCourt();
         tennisCourt.setId(1L);
-        tennisCourt.setName("Best Court");
-
-        Schedule existingSchedule = new Schedule();
-        existingSchedule.setId(1L);
-        existingSchedule.setTennisCourt(tennisCourt);
-        existingSchedule.setStartDateTime(LocalDateTime.now());
-        existingSchedule.setEndDateTime(LocalDateTime.now().plusHours(2));
 
-        when(scheduleMapper.map(any(List.class))).thenAnswer(invocation -> {
-            Schedule s = (Schedule) (((List) invocation.getArguments()[0]).get(0));
-            return Collections.singletonList(ScheduleDTO.builder().id(s.getId()).tennisCourtId(s.getTennisCourt().getId())
-                    .startDateTime(s.getStartDateTime()).endDateTime(s.getEndDateTime()).build());
-        });
-        when(scheduleRepository.findByTennisCourt_IdOrderByStartDateTime(anyLong())).thenReturn(Collections.singletonList(existingSchedule));
+        when(tennisCourtRepository.findForSchedulingById(anyLong())).thenReturn(Optional.of(tennisCourt));
+        when(scheduleRepository.findSlotsByTennisCourtIdOverlapping(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Collections.singletonList(new ScheduleSlot(2L, startDateTime.minusMinutes(30), startDateTime.plusMinutes(30))));
 
         assertThrows(IllegalArgumentException.class, () -> scheduleService.addSchedule(1L, createScheduleRequestDTO));
+        verify(scheduleRepository, never()).saveAndFlush(any(Schedule.class));
     }
 
     @Test
@@ -82,23 +115,7 @@ public class ScheduleServiceTest {
         createScheduleRequestDTO.setStartDateTime(LocalDateTime.now().plusHours(1));
         createScheduleRequestDTO.setTennisCourtId(1L);
 
-        TennisCourt tennisCourt = new TennisCourt();
-        tennisCourt.setId(1L);
-        tennisCourt.setName("Best Court");
-
-        Schedule existingSchedule = new Schedule();
-        existingSchedule.setId(1L);
-        existingSchedule.setTennisCourt(tennisCourt);
-        existingSchedule.setStartDateTime(LocalDateTime.now().plusHours(3));
-        existingSchedule.setEndDateTime(LocalDateTime.now().plusHours(4));
-
-        when(scheduleMapper.map(any(List.class))).thenAnswer(invocation -> {
-            Schedule s = (Schedule) (((List) invocation.getArguments()[0]).get(0));
-            return Collections.singletonList(ScheduleDTO.builder().id(s.getId()).tennisCourtId(s.getTennisCourt().getId())
-                    .startDateTime(s.getStartDateTime()).endDateTime(s.getEndDateTime()).build());
-        });
-        when(scheduleRepository.findByTennisCourt_IdOrderByStartDateTime(anyLong())).thenReturn(Collections.singletonList(existingSchedule));
-        when(tennisCourtRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(tennisCourtRepository.findForSchedulingById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class, () -> scheduleService.addSchedule(1L, createScheduleRequestDTO));
     }
@@ -113,19 +130,7 @@ public class ScheduleServiceTest {
         tennisCourt.setId(1L);
         tennisCourt.setName("Best Court");
 
-        Schedule existingSchedule = new Schedule();
-        existingSchedule.setId(1L);
-        existingSchedule.setTennisCourt(tennisCourt);
-        existingSchedule.setStartDateTime(LocalDateTime.now().plusHours(3));
-        existingSchedule.setEndDateTime(LocalDateTime.now().plusHours(4));
-
-        when(scheduleMapper.map(any(List.class))).thenAnswer(invocation -> {
-            Schedule s = (Schedule) (((List) invocation.getArguments()[0]).get(0));
-            return Collections.singletonList(ScheduleDTO.builder().id(s.getId()).tennisCourtId(s.getTennisCourt().getId())
-                    .startDateTime(s.getStartDateTime()).endDateTime(s.getEndDateTime()).build());
-        });
-        when(scheduleRepository.findByTennisCourt_IdOrderByStartDateTime(anyLong())).thenReturn(Collections.singletonList(existingSchedule));
-        when(tennisCourtRepository.findById(anyLong())).thenReturn(Optional.of(tennisCourt));
+        when(tennisCourtRepository.findForSchedulingById(anyLong())).thenReturn(Optional.of(tennisCourt));
         when(scheduleRepository.saveAndFlush(any(Schedule.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
         when(scheduleMapper.map(any(Schedule.class))).thenAnswer(invocation -> {
             Schedule s = (Schedule) invocation.getArguments()[0];
@@ -136,6 +141,27 @@ public class ScheduleServiceTest {
         ScheduleDTO returnScheduleDTO = scheduleService.addSchedule(1L, createScheduleRequestDTO);
         assertEquals(1L, returnScheduleDTO.getTennisCourtId());
         assertTrue(returnScheduleDTO.getStartDateTime().isAfter(LocalDateTime.now()));
+        verify(scheduleIndex).add(any(Schedule.class));
+        verify(courtUsageService).recordSchedules(argThat(schedules -> schedules.size() == 1));
+    }
+
+    @Test
+    public void addScheduleRetriesLostRollupRace() {
+        CreateScheduleRequestDTO createScheduleRequestDTO = new CreateScheduleRequestDTO();
+        createScheduleRequestDTO.setStartDateTime(LocalDateTime.now().plusHours(1));
+        createScheduleRequestDTO.setTennisCourtId(1L);
+
+        TennisCourt tennisCourt = new TennisCourt();
+        tennisCourt.setId(1L);
+
+        when(tennisCourtRepository.findForSchedulingById(anyLong())).thenReturn(Optional.of(tennisCourt));
+        when(scheduleRepository.saveAndFlush(any(Schedule.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+        doThrow(new DataIntegrityViolationException("uk_court_daily_usage_court_day")).doNothing()
+                .when(courtUsageService).recordSchedules(anyList());
+
+        scheduleService.addSchedule(1L, createScheduleRequestDTO);
+        verify(courtUsageService, times(2)).recordSchedules(anyList());
+        verify(scheduleIndex).add(any(Schedule.class));
     }
 
     @Test
@@ -168,4 +194,121 @@ public class ScheduleServiceTest {
         assertEquals(1L, returnScheduleDTO.getTennisCourtId());
         assertTrue(returnScheduleDTO.getStartDateTime().isAfter(LocalDateTime.now()));
     }
+
+    @Test
+    public void findFreeSchedulesByTennisCourtIdInvalidPeriod() {
+        assertThrows(IllegalArgumentException.class, () -> scheduleService.findFreeSchedulesByTennisCourtId(1L,
+                LocalDateTime.now().plusDays(2), LocalDateTime.now().plusDays(1)));
+    }
+
+    @Test
+    public void findFreeSchedulesByTennisCourtIdSuccess() {
+        LocalDateTime startDateTime = LocalDateTime.now().plusDays(1);
+
+        when(scheduleIndex.findFreeSlots(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(
+                Collections.singletonList(new ScheduleSlot(1L, startDateTime, startDateTime.plusHours(1))));
+
+        List<ScheduleDTO> scheduleDTOS = scheduleService.findFreeSchedulesByTennisCourtId(1L,
+                LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(2));
+        assertEquals(1, scheduleDTOS.size());
+        assertEquals(1L, scheduleDTOS.get(0).getId());
+        assertEquals(1L, scheduleDTOS.get(0).getTennisCourtId());
+        verify(scheduleIndex).findFreeSlots(anyLong(), argThat(from -> !from.isBefore(startDateTime.minusDays(1))), any(LocalDateTime.class));
+    }
+
+    @Test
+    public void addScheduleGridInvalidHours() {
+        CreateScheduleGridRequestDTO createScheduleGridRequestDTO = CreateScheduleGridRequestDTO.builder()
+                .tennisCourtId(1L).startDate(LocalDate.now().plusDays(1)).endDate(LocalDate.now().plusDays(2))
+                .openingTime(LocalTime.of(22, 0)).closingTime(LocalTime.of(8, 0)).build();
+
+        assertThrows(IllegalArgumentException.class, () -> scheduleService.addScheduleGrid(createScheduleGridRequestDTO));
+    }
+
+    @Test
+    public void addScheduleGridShorterThanOneSlot() {
+        CreateScheduleGridRequestDTO createScheduleGridRequestDTO = CreateScheduleGridRequestDTO.builder()
+                .tennisCourtId(1L).startDate(LocalDate.now().plusDays(1)).endDate(LocalDate.now().plusDays(2))
+                .openingTime(LocalTime.of(8, 0)).closingTime(LocalTime.of(8, 30)).build();
+
+        assertThrows(IllegalArgumentException.class, () -> scheduleService.addScheduleGrid(createScheduleGridRequestDTO));
+        verify(tennisCourtRepository, never()).findForSchedulingById(anyLong());
+    }
+
+    @Test
+    public void addScheduleGridTooLarge() {
+        CreateScheduleGridRequestDTO createScheduleGridRequestDTO = CreateScheduleGridRequestDTO.builder()
+                .tennisCourtId(1L).startDate(LocalDate.now().plusDays(1)).endDate(LocalDate.now().plusYears(5))
+                .openingTime(LocalTime.of(0, 0)).closingTime(LocalTime.of(23, 0)).build();
+
+        assertThrows(IllegalArgumentException.class, () -> scheduleService.addScheduleGrid(createScheduleGridRequestDTO));
+    }
+
+    @Test
+    public void addScheduleGridOverlapping() {
+        CreateScheduleGridRequestDTO createScheduleGridRequestDTO = CreateScheduleGridRequestDTO.builder()
+                .tennisCourtId(1L).startDate(LocalDate.now().plusDays(1)).endDate(LocalDate.now().plusDays(2))
+                .openingTime(LocalTime.of(8, 0)).closingTime(LocalTime.of(12, 0)).build();
+
+        when(scheduleIndex.overlaps(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(false, false, true);
+
+        assertThrows(IllegalArgumentException.class, () -> scheduleService.addScheduleGrid(createScheduleGridRequestDTO));
+        verify(scheduleRepository, never()).saveAll(anyIterable());
+    }
+
+    @Test
+    public void addScheduleGridOverlappingStoredSchedule() {
+        CreateScheduleGridRequestDTO createScheduleGridRequestDTO = CreateScheduleGridRequestDTO.builder()
+                .tennisCourtId(1L).startDate(LocalDate.now().plusDays(1)).endDate(LocalDate.now().plusDays(2))
+                .openingTime(LocalTime.of(8, 0)).closingTime(LocalTime.of(12, 0)).build();
+
+        TennisCourt tennisCourt = new TennisCourt();
+        tennisCourt.setId(1L);
+        LocalDateTime storedStart = LocalDate.now().plusDays(2).atTime(10, 30);
+
+        when(tennisCourtRepository.findForSchedulingById(anyLong())).thenReturn(Optional.of(tennisCourt));
+        when(scheduleRepository.findSlotsByTennisCourtIdOverlapping(1L, LocalDate.now().plusDays(1).atTime(8, 0),
+                LocalDate.now().plusDays(2).atTime(12, 0)))
+                .thenReturn(Collections.singletonList(new ScheduleSlot(2L, storedStart, storedStart.plusHours(1))));
+
+        assertThrows(IllegalArgumentException.class, () -> scheduleService.addScheduleGrid(createScheduleGridRequestDTO));
+        verify(scheduleRepository, never()).saveAll(anyIterable());
+    }
+
+    @Test
+    public void addScheduleGridSuccess() {
+        CreateScheduleGridRequestDTO createScheduleGridRequestDTO = CreateScheduleGridRequestDTO.builder()
+                .tennisCourtId(1L).startDate(LocalDate.now().plusDays(1)).endDate(LocalDate.now().plusDays(3))
+                .openingTime(LocalTime.of(8, 0)).closingTime(LocalTime.of(12, 30)).slotLengthInMinutes(90).build();
+
+        TennisCourt tennisCourt = new TennisCourt();
+        tennisCourt.setId(1L);
+
+        when(tennisCourtRepository.findForSchedulingById(anyLong())).thenReturn(Optional.of(tennisCourt));
+        when(scheduleRepository.saveAll(anyIterable())).thenAnswer(invocation -> invocation.getArguments()[0]);
+        when(scheduleMapper.map(anyList())).thenAnswer(invocation -> {
+            List<ScheduleDTO> scheduleDTOS = new ArrayList<>();
+            for (Object schedule : (List) invocation.getArguments()[0]) {
+                Schedule s = (Schedule) schedule;
+                scheduleDTOS.add(ScheduleDTO.builder().tennisCourtId(s.getTennisCourt().getId())
+                        .startDateTime(s.getStartDateTime()).endDateTime(s.getEndDateTime()).build());
+            }
+            return scheduleDTOS;
+        });
+
+        List<ScheduleDTO> scheduleDTOS = scheduleService.addScheduleGrid(createScheduleGridRequestDTO);
+        assertEquals(9, scheduleDTOS.size());
+        assertEquals(LocalDate.now().plusDays(1).atTime(8, 0), scheduleDTOS.get(0).getStartDateTime());
+        assertEquals(LocalDate.now().plusDays(1).atTime(9, 30), scheduleDTOS.get(0).getEndDateTime());
+        assertEquals(LocalDate.now().plusDays(3).atTime(12, 30), scheduleDTOS.get(8).getEndDateTime());
+        verify(scheduleIndex, times(9)).add(any(Schedule.class));
+        verify(courtUsageService).recordSchedules(argThat(schedules -> schedules.size() == 9));
+    }
+
+    @Test
+    public void findSchedulesVersionByTennisCourtIdNotFound() {
+        when(scheduleRepository.findVersionByTennisCourtId(anyLong())).thenReturn(new EntityVersion(0L, null, null));
+
+        assertThrows(EntityNotFoundException.class, () -> scheduleService.findSchedulesVersionByTennisCourtId(1L));
+    }
 }
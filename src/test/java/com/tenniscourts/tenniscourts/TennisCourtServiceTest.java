@@ -24,7 +24,10 @@ import java.util.Collections;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
@@ -41,6 +44,9 @@ public class TennisCourtServiceTest {
     @Mock
     TennisCourtMapper tennisCourtMapper;
 
+    @Mock
+    ReservationService reservationService;
+
     @InjectMocks
     TennisCourtService tennisCourtService;
 
@@ -101,4 +107,22 @@ public class TennisCourtServiceTest {
         assertNotNull(tennisCourtDTO.getTennisCourtSchedules());
         assertFalse(tennisCourtDTO.getTennisCourtSchedules().isEmpty());
     }
+
+    @Test
+    public void closeTennisCourtNotFound() {
+        when(tennisCourtRepository.findById(anyLong())).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> tennisCourtService.closeTennisCourt(1L,
+                LocalDateTime.now(), LocalDateTime.now().plusDays(1)));
+        verify(reservationService, never()).cancelReservationsForClosure(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    public void findTennisCourtAvailabilityNotFound() {
+        when(tennisCourtRepository.findById(anyLong())).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> tennisCourtService.findTennisCourtAvailability(987654L,
+                LocalDateTime.now(), LocalDateTime.now().plusDays(1)));
+        verify(scheduleService, never()).findFreeSchedulesByTennisCourtId(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class));
+    }
 }
@@ -0,0 +1,223 @@
+package com.tenniscourts.waitlist;
+
+import com.tenniscourts.config.persistence.OptimisticRetryExecutor;
+import com.tenniscourts.exceptions.EntityNotFoundException;
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
+import com.tenniscourts.reservations.BookingLanes;
+import com.tenniscourts.reservations.Reservation;
+import com.tenniscourts.reservations.ReservationRepository;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleRepository;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SpringBootTest
+@RunWith(MockitoJUnitRunner.class)
+@ContextConfiguration(classes = WaitlistService.class)
+public class WaitlistServiceTest {
+    @Mock
+    WaitlistEntryRepository waitlistEntryRepository;
+
+    @Mock
+    GuestRepository guestRepository;
+
+    @Mock
+    ScheduleRepository scheduleRepository;
+
+    @Mock
+    ReservationRepository reservationRepository;
+
+    @Mock
+    WaitlistEntryMapper waitlistEntryMapper;
+
+    @Mock
+    Waitlist waitlist;
+
+    @Spy
+    OptimisticRetryExecutor optimisticRetryExecutor = new OptimisticRetryExecutor(TransactionOperations.withoutTransaction());
+
+    @Spy
+    BookingLanes bookingLanes = new BookingLanes(false, 0);
+
+    @InjectMocks
+    WaitlistService waitlistService;
+
+    @Test
+    public void joinWaitlistScheduleNotFound() {
+        when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest()));
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> waitlistService.joinWaitlist(request()));
+    }
+
+    @Test
+    public void joinWaitlistScheduleFree() {
+        when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest()));
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.of(schedule(LocalDateTime.now().plusDays(1))));
+        when(reservationRepository.existsBySchedule_IdAndReservationStatus(1L, ReservationStatus.READY_TO_PLAY)).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class, () -> waitlistService.joinWaitlist(request()));
+        verify(waitlistEntryRepository, never()).save(any(WaitlistEntry.class));
+    }
+
+    @Test
+    public void joinWaitlistScheduleClosed() {
+        Schedule schedule = schedule(LocalDateTime.now().plusDays(1));
+        schedule.setClosed(true);
+        when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest()));
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.of(schedule));
+
+        assertThrows(IllegalArgumentException.class, () -> waitlistService.joinWaitlist(request()));
+        verify(waitlistEntryRepository, never()).save(any(WaitlistEntry.class));
+    }
+
+    @Test
+    public void joinWaitlistAlreadyWaiting() {
+        when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest()));
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.of(schedule(LocalDateTime.now().plusDays(1))));
+        when(reservationRepository.existsBySchedule_IdAndReservationStatus(1L, ReservationStatus.READY_TO_PLAY)).thenReturn(true);
+        when(waitlistEntryRepository.existsBySchedule_IdAndGuest_IdAndWaitlistStatus(1L, 2L, WaitlistStatus.WAITING)).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class, () -> waitlistService.joinWaitlist(request()));
+    }
+
+    @Test
+    public void joinWaitlistSuccess() {
+        when(guestRepository.findById(anyLong())).thenReturn(Optional.of(guest()));
+        when(scheduleRepository.findForBookingById(anyLong())).thenReturn(Optional.of(schedule(LocalDateTime.now().plusDays(1))));
+        when(reservationRepository.existsBySchedule_IdAndReservationStatus(1L, ReservationStatus.READY_TO_PLAY)).thenReturn(true);
+        when(waitlistEntryRepository.save(any(WaitlistEntry.class))).thenAnswer(invocation -> {
+            WaitlistEntry waitlistEntry = (WaitlistEntry) invocation.getArguments()[0];
+            waitlistEntry.setId(5L);
+            return waitlistEntry;
+        });
+        when(waitlistEntryMapper.map(any(WaitlistEntry.class))).thenAnswer(invocation -> WaitlistEntryDTO.builder()
+                .id(((WaitlistEntry) invocation.getArguments()[0]).getId()).build());
+
+        assertEquals(5L, waitlistService.joinWaitlist(request()).getId());
+        verify(waitlist).add(argThat(waiter -> waiter.getId() == 5L && waiter.getScheduleId() == 1L));
+    }
+
+    @Test
+    public void withdrawWaitlistEntryNotWaiting() {
+        when(waitlistEntryRepository.findById(anyLong())).thenReturn(Optional.of(
+                WaitlistEntry.builder().waitlistStatus(WaitlistStatus.PROMOTED).build()));
+
+        assertThrows(IllegalArgumentException.class, () -> waitlistService.withdrawWaitlistEntry(1L));
+    }
+
+    @Test
+    public void withdrawWaitlistEntrySuccess() {
+        WaitlistEntry waitlistEntry = entry(5L);
+        when(waitlistEntryRepository.findById(anyLong())).thenReturn(Optional.of(waitlistEntry));
+        when(waitlistEntryRepository.save(any(WaitlistEntry.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+
+        waitlistService.withdrawWaitlistEntry(5L);
+
+        assertEquals(WaitlistStatus.WITHDRAWN, waitlistEntry.getWaitlistStatus());
+        verify(waitlist).remove(Waiter.of(waitlistEntry));
+    }
+
+    @Test
+    public void findNextWaitingReadsTheTable() {
+        WaitlistEntry waitlistEntry = entry(5L);
+
+        when(waitlistEntryRepository.findFirstBySchedule_IdAndWaitlistStatusOrderByJoinedDateTimeAscIdAsc(1L, WaitlistStatus.WAITING))
+                .thenReturn(Optional.of(waitlistEntry));
+
+        assertEquals(Optional.of(waitlistEntry), waitlistService.findNextWaiting(schedule(LocalDateTime.now().plusDays(1))));
+        verify(waitlist, never()).findWaiters(anyLong());
+    }
+
+    @Test
+    public void markPromotedSuccess() {
+        WaitlistEntry waitlistEntry = entry(5L);
+        Reservation reservation = new Reservation();
+
+        waitlistService.markPromoted(waitlistEntry, reservation);
+
+        assertEquals(WaitlistStatus.PROMOTED, waitlistEntry.getWaitlistStatus());
+        assertSame(reservation, waitlistEntry.getReservation());
+        verify(waitlistEntryRepository).save(waitlistEntry);
+        verify(waitlist).remove(Waiter.of(waitlistEntry));
+    }
+
+    @Test
+    public void cancelWaitingSuccess() {
+        WaitlistEntry first = entry(5L);
+        WaitlistEntry second = entry(6L);
+        when(waitlistEntryRepository.findBySchedule_IdInAndWaitlistStatus(Arrays.asList(1L, 2L), WaitlistStatus.WAITING))
+                .thenReturn(Arrays.asList(first, second));
+
+        waitlistService.cancelWaiting(Arrays.asList(1L, 2L));
+
+        assertEquals(WaitlistStatus.CANCELLED, first.getWaitlistStatus());
+        assertEquals(WaitlistStatus.CANCELLED, second.getWaitlistStatus());
+        verify(waitlistEntryRepository).saveAll(Arrays.asList(first, second));
+        verify(waitlist).remove(Waiter.of(first));
+        verify(waitlist).remove(Waiter.of(second));
+    }
+
+    @Test
+    public void expireStartedSuccess() {
+        WaitlistEntry first = entry(5L);
+        WaitlistEntry second = entry(6L);
+        LocalDateTime startedBy = LocalDateTime.now();
+        when(waitlistEntryRepository.findStartedByWaitlistStatusAfter(eq(WaitlistStatus.WAITING), eq(startedBy), eq(4L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(first, second));
+
+        assertEquals(Arrays.asList(first, second), waitlistService.expireStarted(startedBy, 4L, 10));
+
+        assertEquals(WaitlistStatus.EXPIRED, first.getWaitlistStatus());
+        assertEquals(WaitlistStatus.EXPIRED, second.getWaitlistStatus());
+        verify(waitlistEntryRepository).saveAll(Arrays.asList(first, second));
+        verify(waitlist).remove(Waiter.of(first));
+        verify(waitlist).remove(Waiter.of(second));
+    }
+
+    private CreateWaitlistEntryRequestDTO request() {
+        return CreateWaitlistEntryRequestDTO.builder().guestId(2L).scheduleId(1L).build();
+    }
+
+    private Guest guest() {
+        Guest guest = new Guest();
+        guest.setId(2L);
+        return guest;
+    }
+
+    private Schedule schedule(LocalDateTime startDateTime) {
+        Schedule schedule = Schedule.builder().startDateTime(startDateTime).endDateTime(startDateTime.plusHours(1)).build();
+        schedule.setId(1L);
+        return schedule;
+    }
+
+    private WaitlistEntry entry(Long id) {
+        WaitlistEntry waitlistEntry = WaitlistEntry.builder().guest(guest()).schedule(schedule(LocalDateTime.now().plusDays(1)))
+                .waitlistStatus(WaitlistStatus.WAITING).joinedDateTime(LocalDateTime.now().minusHours(1)).build();
+        waitlistEntry.setId(id);
+        return waitlistEntry;
+    }
+}
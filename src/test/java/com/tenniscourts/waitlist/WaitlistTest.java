@@ -0,0 +1,72 @@
+package com.tenniscourts.waitlist;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SpringBootTest
+@RunWith(MockitoJUnitRunner.class)
+@ContextConfiguration(classes = Waitlist.class)
+public class WaitlistTest {
+    @Mock
+    WaitlistEntryRepository waitlistEntryRepository;
+
+    @InjectMocks
+    Waitlist waitlist;
+
+    private static final LocalDateTime JOINED = LocalDateTime.now().minusHours(1);
+
+    @Test
+    public void findWaitersInJoinOrder() {
+        Waiter first = new Waiter(7L, 1L, JOINED);
+        Waiter second = new Waiter(3L, 1L, JOINED.plusMinutes(5));
+        Waiter sameTimeAsSecond = new Waiter(4L, 1L, JOINED.plusMinutes(5));
+
+        when(waitlistEntryRepository.findWaitersByWaitlistStatus(WaitlistStatus.WAITING))
+                .thenReturn(Arrays.asList(sameTimeAsSecond, second, new Waiter(9L, 2L, JOINED)));
+        waitlist.add(first);
+
+        assertEquals(Arrays.asList(first, second, sameTimeAsSecond), waitlist.findWaiters(1L));
+        assertEquals(3, waitlist.position(sameTimeAsSecond));
+        assertTrue(waitlist.findWaiters(3L).isEmpty());
+    }
+
+    @Test
+    public void loadsOnlyOnce() {
+        when(waitlistEntryRepository.findWaitersByWaitlistStatus(WaitlistStatus.WAITING)).thenReturn(Collections.emptyList());
+
+        waitlist.findWaiters(1L);
+        waitlist.findWaiters(2L);
+
+        verify(waitlistEntryRepository, times(1)).findWaitersByWaitlistStatus(WaitlistStatus.WAITING);
+    }
+
+    @Test
+    public void removeLastWaiter() {
+        Waiter waiter = new Waiter(1L, 1L, JOINED);
+
+        when(waitlistEntryRepository.findWaitersByWaitlistStatus(WaitlistStatus.WAITING)).thenReturn(Collections.singletonList(waiter));
+        assertEquals(1, waitlist.position(waiter));
+
+        waitlist.remove(waiter);
+
+        assertTrue(waitlist.findWaiters(1L).isEmpty());
+        assertEquals(0, waitlist.position(waiter));
+    }
+}